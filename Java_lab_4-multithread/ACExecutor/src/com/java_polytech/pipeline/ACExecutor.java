@@ -4,15 +4,16 @@ import com.java_polytech.config_support.MySyntaxAnalyzer;
 import com.java_polytech.pipeline_interfaces.*;
 
 import javafx.util.Pair;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Locale;
-import java.util.ArrayDeque;
-import java.util.HashMap;
 
 import static com.java_polytech.pipeline_interfaces.RC.*;
 
 // The class that performs arithmetic encoding/decoding
-public class ACExecutor implements IExecutor {
+public class ACExecutor implements IReplicableExecutor, IFusibleExecutor, ICreditedProvider, IBufferedStage,
+        IMonitoredStage {
     // The enum containing the executor's mode
     enum Mode {
         ENCODE("ENCODE"),
@@ -39,12 +40,103 @@ public class ACExecutor implements IExecutor {
         }
     }
 
+    // The enum containing the frequency model used for coding
+    enum Model {
+        TABLE("TABLE"),
+        FENWICK("FENWICK"),
+        ORDER1("ORDER1"),
+        ORDER2("ORDER2"),
+        POW2("POW2"),
+        STATIC("STATIC"),
+        INCORRECT("INCORRECT");
+
+        private final String model;
+
+        Model(String param){
+            model = param;
+        }
+
+        public String asString(){
+            return model;
+        }
+
+        static Model ToEnum(String str) {
+            if (str.equalsIgnoreCase(TABLE.asString()))
+                return TABLE;
+            else if (str.equalsIgnoreCase(FENWICK.asString()))
+                return FENWICK;
+            else if (str.equalsIgnoreCase(ORDER1.asString()))
+                return ORDER1;
+            else if (str.equalsIgnoreCase(ORDER2.asString()))
+                return ORDER2;
+            else if (str.equalsIgnoreCase(POW2.asString()))
+                return POW2;
+            else if (str.equalsIgnoreCase(STATIC.asString()))
+                return STATIC;
+            else
+                return INCORRECT;
+        }
+
+        IFrequencyModel create() {
+            if (this == FENWICK)
+                return new FenwickFrequencyModel();
+            if (this == ORDER1)
+                return new ContextFrequencyModel(1);
+            if (this == ORDER2)
+                return new ContextFrequencyModel(2);
+            if (this == POW2)
+                return new PowerOfTwoFrequencyModel();
+            if (this == STATIC) // The real frequencies come with the code, see StaticCoder
+                return new StaticFrequencyModel(null);
+            return new TableFrequencyModel();
+        }
+
+        // Creates the model that starts from the statistics of the dictionary if it is not null
+        IFrequencyModel create(ModelDictionary dictionary) {
+            IFrequencyModel model = create();
+            if (dictionary != null)
+                model.prime(dictionary);
+            return model;
+        }
+    }
+
+    // The enum containing the coding engine
+    enum Engine {
+        ARITHMETIC("ARITHMETIC"),
+        RANGE("RANGE"),
+        BINARY("BINARY"),
+        INCORRECT("INCORRECT");
+
+        private final String engine;
+
+        Engine(String param){
+            engine = param;
+        }
+
+        public String asString(){
+            return engine;
+        }
+
+        static Engine ToEnum(String str) {
+            if (str.equalsIgnoreCase(ARITHMETIC.asString()))
+                return ARITHMETIC;
+            else if (str.equalsIgnoreCase(RANGE.asString()))
+                return RANGE;
+            else if (str.equalsIgnoreCase(BINARY.asString()))
+                return BINARY;
+            else
+                return INCORRECT;
+        }
+    }
+
     boolean IsConsumerSpecified = false;  // Flag indicating whether the consumer is set
     boolean IsConfigSpecified = false;    // Flag indicating whether the configuration file is set
     boolean IsTypeSpecified = false;      // Flag indicating whether the TYPE is set
     static final int NUM_OF_VALUES = 1;   // How many times should the grammar field value be set
+    static private final String TRUE_VALUE = "TRUE";
+    static private final String FALSE_VALUE = "FALSE";
 
-    private final TYPE[] supportedTypes = {TYPE.BYTE_ARRAY};
+    private final TYPE[] supportedTypes = {TYPE.BYTE_BUFFER, TYPE.BYTE_ARRAY};
     private TYPE currentType;
 
     IProvider Prev;
@@ -57,9 +149,14 @@ public class ACExecutor implements IExecutor {
     int outBufferSize = 0;                // Maximum buffer size
 
     long out_current_packet_number = 0;
-    private final HashMap<Long, byte[]> processedBuffers = new HashMap<>();
+    // By default the packets waiting for the consumer may take the bytes of this number of full packets
+    private static final int DEFAULT_CREDIT_PACKETS = 5;
+    private final PacketChannel<ByteBuffer> processedBuffers = new PacketChannel<>(0, ByteBuffer::remaining,
+            this::recycle);
+    private boolean IsCreditsSpecified = false;  // Flag indicating whether the config has set the credits
 
-    private final ArrayDeque<Long> availablePackets = new ArrayDeque<>();
+    private final PacketQueue availablePackets = new PacketQueue();
+    private final StageStats stats = new StageStats();
 
     private RC CurrentState = RC_SUCCESS;
 
@@ -68,149 +165,152 @@ public class ACExecutor implements IExecutor {
         return CurrentState;
     }
 
+    @Override
+    public long getMaxBufferedBytes() {
+        // The packets waiting in the channel and the one being filled, in the parallel mode also the blocks being
+        // coded. The two-pass mode keeps the whole input, its size is not known beforehand
+        return (long)processedBuffers.getCredits() + outBufferSize + BlockContainer.maxBufferedBytes(blockSize);
+    }
+
+    @Override
+    public StageStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public boolean isReplicable() {
+        return independentModel != null;
+    }
+
+    @Override
+    public void setDefaultCredits(int bytes) {
+        if (!IsCreditsSpecified)
+            processedBuffers.setCredits(bytes);
+    }
+
+    @Override
+    public int getCredits() {
+        return processedBuffers.getCredits();
+    }
+
+    // Waits for the packet and checks it, returns null on error
+    private ByteBuffer receive(long packet_number) {
+        if (packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER) {
+            return null;
+        }
+        // Wait until the packet is published, the processing is over or the consumer has failed
+        ByteBuffer buf = processedBuffers.receive(packet_number);
+        if (buf == null) {
+            if (processedBuffers.getState().isSuccess())
+                CurrentState = new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Invalid index asked");
+            return null;
+        }
+        if (!buf.hasRemaining()) {
+            CurrentState = new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Something wrong with file reading");
+            return null;
+        }
+        return buf;
+    }
+
+    // Returns the array of the packet to the pool
+    private void recycle(ByteBuffer buf) {
+        if (buf != null && buf.hasArray())
+            BufferPool.SHARED.release(RCWho.EXECUTOR, buf.array());
+    }
+
     class ByteArrayMediator implements IMediator {
         @Override
         public Object getData(long packet_number) {
-            if (packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER) {
-                return null;
-            }
-            if (!processedBuffers.containsKey(packet_number) &&
-                    out_current_packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER) {
-                CurrentState = new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Invalid index asked");
+            ByteBuffer buf = receive(packet_number);
+            if (buf == null)
                 return null;
-            }
-            while (!processedBuffers.containsKey(packet_number) &&
-                    out_current_packet_number != IConsumer.END_OF_FILE_PACKET_NUMBER) {
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException ex) {
-                }
-            }
-            if (processedBuffers.containsKey(packet_number)) {
-                byte[] buf = processedBuffers.get(packet_number);
-                if (buf.length == 0) {
-                    CurrentState = new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Something wrong with file reading");
-                    return null;
-                }
 
-                byte[] data = new byte[buf.length];
-                System.arraycopy(buf, 0, data, 0, buf.length);
-                processedBuffers.remove(packet_number);
-                return data;
-            }
-            CurrentState = new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Something goes wrong in Mediator");
-            return null;
+            byte[] data = new byte[buf.remaining()];
+            buf.get(data);
+            recycle(buf);
+            return data;
+        }
+
+        @Override
+        public void cancel() {
+            processedBuffers.fail(new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Consumer has stopped"));
         }
     }
 
-    // The class that reads data from the received buffer in the desired format
-    private static class ReaderFromBuffer {
-        static private final int TO_NEXT_BYTE = 0;   // Indicates that it needs to move to the next byte
-        static private final int IT_IS_NEW_BYTE = 8; // A sign that it has just moved to a new byte
-        static public final int EOF = -1;            // Indicates the end of the buffer
-        static private final int MASK = 1;           // Mask for getting the bit
-        private int bitsToGo;                        // The number of bits before switching to a new byte
-        private int garbageBits;                     // Number of dummy bits
-        private final byte[] buf;                    // Received buffer
-        private int index;                           // Current buffer position
-
-        ReaderFromBuffer(byte[] bytes){
-            buf = bytes;
-            bitsToGo = IT_IS_NEW_BYTE;
-        }
-
-        public byte readByte() {
-            if(index >= buf.length)
-                return EOF;
-            return buf[index++];
-        }
-
-        public int readBit() {
-            if (buf == null) { // In case of end of file
-                garbageBits++;
-                if (garbageBits > ACExecutor.VALUE_BITS_NUM) // If there are too many dummy bits it is an error
-                    return garbageBits;
-                else // Otherwise, return a dummy bit
-                    return 1;
-            }
-            if(bitsToGo == TO_NEXT_BYTE) { // Move to the next byte
-                index++;
-                bitsToGo = IT_IS_NEW_BYTE;
-            }
-            if(index == buf.length)
-                return EOF;
-            else
-                return (buf[index]>>(IT_IS_NEW_BYTE - bitsToGo--)) & MASK;
+    // Hands the output buffer over without copying, the consumer returns it through release
+    class ByteBufferMediator implements IMediator {
+        @Override
+        public Object getData(long packet_number) {
+            return receive(packet_number);
+        }
+
+        @Override
+        public void release(Object data) {
+            if (data instanceof ByteBuffer)
+                recycle((ByteBuffer)data);
         }
 
-        public boolean isEnded() {
-            if(buf == null)
-                return true;
-            return index >= buf.length;
+        @Override
+        public void cancel() {
+            processedBuffers.fail(new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Consumer has stopped"));
         }
     }
 
     // The class that writes data to the buffer in the desired format
     private class WriterToBuffer {
-        static private final int TO_NEXT_BYTE = 0;    // Indicates that it needs to move to the next byte
-        static private final int IT_IS_NEW_BYTE = 8;  // A sign that it has just moved to a new byte
-        static private final int MASK = 0x80;         // Mask for putting the bit
-        static private final int SHIFT = 1;           // Offset by this number of bits when writing a bit
-        private int currentByte;                      // Current byte to processing
-        private int bitsToGo;                         // The number of bits before switching to a new byte
-        private static final int MAX_NUM = 5;
-
-        WriterToBuffer(){
-            bitsToGo = IT_IS_NEW_BYTE;
-        }
+        private final BitWriter bits = new BitWriter(this::writeBytes); // Collects the bits of the code
 
         public RC writeByte(byte b) {
             outBuffer[outBufferIndex] = b;
             outBufferIndex++;
             if (outBufferIndex == outBufferSize) { // When it has accumulated the necessary amount, it passes on the accumulated in the buffer
-                while(processedBuffers.size() >= MAX_NUM)
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException ex) {}
-
-                byte[] tmp = new byte[outBufferSize];
-                System.arraycopy(outBuffer, 0, tmp, 0, outBufferSize);
-                processedBuffers.put(out_current_packet_number, tmp);
-                RC consumerRC = Next.consume(out_current_packet_number);
-                if(out_current_packet_number == 0x8fffffff)
-                    out_current_packet_number = 0;
-                out_current_packet_number++;
-                outBufferIndex = 0;
-                return consumerRC;
+                return publishFull();
             }
             return RC_SUCCESS;
         }
 
-        public RC writeBit(int bit) {
-            currentByte >>= SHIFT;
-
-            if(bit > 0)
-                currentByte |= MASK;
-
-            bitsToGo--;
-
-            if(bitsToGo == TO_NEXT_BYTE){
-                bitsToGo = IT_IS_NEW_BYTE;
-                return writeByte((byte)currentByte);
+        public RC writeBytes(byte[] data, int offset, int length) {
+            while (length > 0) {
+                int part = Math.min(outBufferSize - outBufferIndex, length);
+                System.arraycopy(data, offset, outBuffer, outBufferIndex, part);
+                outBufferIndex += part;
+                offset += part;
+                length -= part;
+                if (outBufferIndex == outBufferSize) {
+                    RC tmp = publishFull();
+                    if (!tmp.isSuccess())
+                        return tmp;
+                }
             }
             return RC_SUCCESS;
         }
 
+        private RC publishFull() {
+            // The filled array itself becomes the packet, the consumer owns it until it is released
+            ByteBuffer tmp = ByteBuffer.wrap(outBuffer, 0, outBufferSize);
+            // Wait for free space in the channel, it fails if the consumer has stopped
+            if (!processedBuffers.publish(out_current_packet_number, tmp))
+                return publishError();
+            stats.countOut(outBufferSize);
+            outBuffer = nextBuffer();
+            RC consumerRC = Next.consume(out_current_packet_number);
+            if(out_current_packet_number == 0x8fffffff)
+                out_current_packet_number = 0;
+            out_current_packet_number++;
+            outBufferIndex = 0;
+            return consumerRC;
+        }
+
         private RC outBufferClose() {
-            if(bitsToGo != IT_IS_NEW_BYTE){
-                RC tmp = writeByte((byte)(currentByte>>bitsToGo));
-                if(!tmp.isSuccess())
-                    return tmp;
-            }
+            RC flushRC = bits.flush();
+            if (!flushRC.isSuccess())
+                return flushRC;
             if(outBufferIndex > 0) {
-                byte[] tmp = new byte[outBufferIndex];
-                System.arraycopy(outBuffer, 0, tmp, 0, outBufferIndex);
-                processedBuffers.put(out_current_packet_number, tmp);
+                ByteBuffer tmp = ByteBuffer.wrap(outBuffer, 0, outBufferIndex);
+                if (!processedBuffers.publish(out_current_packet_number, tmp))
+                    return publishError();
+                stats.countOut(outBufferIndex);
+                outBuffer = null;
                 RC consumerRC = Next.consume(out_current_packet_number);
                 out_current_packet_number++;
                 if (!consumerRC.isSuccess())
@@ -218,40 +318,68 @@ public class ACExecutor implements IExecutor {
             }
 
             // Send a completion signal
+            BufferPool.SHARED.release(RCWho.EXECUTOR, outBuffer);
+            outBuffer = null;
             outBufferIndex = 0;
+            processedBuffers.close();
             RC consumerRC = Next.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
             if (!consumerRC.isSuccess())
                 return consumerRC;
 
             return RC_SUCCESS;
         }
+
+        private byte[] nextBuffer() {
+            return BufferPool.SHARED.lease(RCWho.EXECUTOR, outBufferSize);
+        }
+
+        private RC publishError() {
+            if (processedBuffers.getState().isSuccess())
+                return new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Processing was interrupted");
+            return processedBuffers.getState();
+        }
     }
 
     private WriterToBuffer writer;         // A reference to an instance of the class that writes to the buffer
 
-    private int bitsToFollow = 0;                              // Number of additional bits
-    static private final int TABLE_SIZE = 258;                 // Size of auxiliary buffers
-    static private final int EOF_SYMBOL = 256;                 // Stop symbol (Indicates the end of the encoded sequence)
-    private final long[] table = new long[TABLE_SIZE];         // Buffer indicating the number of each character
-    private final long[] cumulative = new long[TABLE_SIZE];    // Buffer indicating the accumulated number of characters
-    private final int[] byteToIndex = new int[TABLE_SIZE - 2]; // Buffer for fast byte-to-index conversion
-    private final int[] indexToByte = new int[TABLE_SIZE];     // Buffer for fast index-to-byte conversion
+    private IFrequencyModel model;                             // Adaptive model of the character frequencies
+    private IntervalCoder.Encoder streamEncoder;               // The coder of the single stream in the encode mode
+    private IntervalCoder.Decoder streamDecoder;               // The coder of the single stream in the decode mode
     static private final int BYTE_SHIFT = 8;                   // Shift by one byte in bits
-    static private final int LONG_SIZE = 8;                    // Number of bytes in long
-    static private final long MAX_VALUE = 0x0000000000ffffffL; // The maximum value of the parameter during processing
-    static private final long FIRST_QTR = MAX_VALUE / 4 + 1;   // A milestone for scaling
-    static private final long HALF = 2 * FIRST_QTR;            // A milestone for scaling
-    static private final long THIRD_QTR = 3 * FIRST_QTR;       // A milestone for scaling
-    static private final int VALUE_BITS_NUM = (LONG_SIZE - 5) * BYTE_SHIFT; // The number of bits in the maximum value
-    static private final int SUCCESS = 0;                      // Success code
-    private long low = 0;                     // Lower border
-    private long high = MAX_VALUE;            // Upper bound
-    private long currentValue = 0;            // The current value of the parameter
-    private int valueBitsFilled = 0;          // Number of filled parameter bits
+    static private final int VALUE_BITS_NUM = IntervalCoder.VALUE_BITS_NUM; // The number of bits in the maximum value
+    static private final int SUCCESS = IntervalCoder.Decoder.SUCCESS;       // Success code
+    static private final RC RC_INCORRECT_INPUT = new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Incorrect input file");
+    static private final RC RC_DATA_AFTER_END = new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Incorrect input file...");
     private boolean decodingComplete = false; // Indication of decoding completion
-    private boolean correctValue = true;      // Indication of the relevance of the parameter
+    static private final int MAX_TRAILING_BYTES = 4; // Padding after the stop symbol that may come in later packets
+    // The encoder ends the stream with two bits of the final interval padded to a whole byte. The decoder looks
+    // VALUE_BITS_NUM bits ahead, so after the last stop symbol it has read this many dummy bits
+    static private final int MIN_END_GARBAGE_BITS = VALUE_BITS_NUM - 2 - (BYTE_SHIFT - 1);
+    static private final int MAX_END_GARBAGE_BITS = VALUE_BITS_NUM - 2;
+    private int trailingBytes = 0;            // Number of bytes received after the stop symbol
+    private boolean isEofPending = false;     // The packet has run out in the middle of a stop symbol that also codes a byte
+    private int decodedSymbol = 0;            // The symbol found by the last decodeSymbol, 0 if there is none
+    private final BitReader reader = new BitReader(VALUE_BITS_NUM); // Reads the bits of every received packet
     long current_pack = 0;
 
+    private int blockSize = 0;                       // Size of the blocks coded in parallel, 0 codes a single stream
+    private BlockContainer.Encoder blockEncoder;     // Used in the parallel mode
+    private Model independentModel;                  // Codes every packet as a container of its own if it is set
+    private BlockContainer.Decoder blockDecoder;     // Used if the input starts with the container header
+    private RangeCoder.Encoder rangeEncoder;         // Used by the range engine
+    private RangeCoder.Decoder rangeDecoder;         // Used if the input starts with the range code header
+    private BinaryCoder.Encoder binaryEncoder;       // Used by the binary engine
+    private BinaryCoder.Decoder binaryDecoder;       // Used if the input starts with the binary code header
+    private StaticCoder.Encoder staticEncoder;       // Used by the static model
+    private StaticCoder.Decoder staticDecoder;       // Used if the input starts with the static code header
+    private final byte[] magic = new byte[BlockContainer.MAGIC.length]; // The first bytes of the input
+    private int magicLength = 0;
+    private boolean isFormatKnown = false;
+    private ModelDictionary dictionary;           // Pre-trained statistics of the models, null if they are not set
+    private boolean isTagWritten = false;         // Whether the encoder has written the dictionary tag
+    private boolean isTagFound = false;           // Whether the input starts with the dictionary tag
+    private boolean isTagChecked = false;         // Whether the id of the dictionary after the tag is checked
+
     @Override
     public RC setProvider(IProvider provider) {
         Prev = provider;
@@ -289,7 +417,9 @@ public class ACExecutor implements IExecutor {
 
     @Override
     public IMediator getMediator(TYPE Type) {
-        if (Type.equals(TYPE.BYTE_ARRAY))
+        if (Type.equals(TYPE.BYTE_BUFFER))
+            return new ByteBufferMediator();
+        else if (Type.equals(TYPE.BYTE_ARRAY))
             return new ByteArrayMediator();
         else
             return null;
@@ -324,7 +454,7 @@ public class ACExecutor implements IExecutor {
                 return RC_EXECUTOR_CONFIG_SEMANTIC_ERROR;
             }
 
-            outBuffer = new byte[outBufferSize];
+            outBuffer = BufferPool.SHARED.lease(RCWho.EXECUTOR, outBufferSize);
             outBufferIndex = 0;
 
             Pair<RC, ArrayList<String>> val = config.GetFieldValues(ExecutorGrammarMy.ConfigParams.MODE.asString());
@@ -343,9 +473,155 @@ public class ACExecutor implements IExecutor {
             if (mode == Mode.INCORRECT) // Incorrect operation mode
                 return RC_EXECUTOR_CONFIG_SEMANTIC_ERROR;
 
+            // The model is optional, by default the table model is used
+            Model modelType = Model.TABLE;
+            Pair<RC, String> option = config.GetOptionalValue(ExecutorGrammarMy.ConfigParams.MODEL.asString());
+
+            if (!option.getKey().isSuccess())
+                return option.getKey();
+
+            if (option.getValue() != null) {
+                modelType = Model.ToEnum(option.getValue());
+
+                if (modelType == Model.INCORRECT) // Incorrect frequency model
+                    return RC_EXECUTOR_CONFIG_SEMANTIC_ERROR;
+            }
+
+            // The block size is optional, without it a single stream is coded
+            blockSize = 0;
+            try {
+                option = config.GetOptionalValue(ExecutorGrammarMy.ConfigParams.BLOCK_SIZE.asString());
+
+                if (!option.getKey().isSuccess())
+                    return option.getKey();
+
+                if (option.getValue() != null) {
+                    blockSize = Integer.parseInt(option.getValue());
+                    // A negative number or zero is specified as the value
+                    if (blockSize <= 0)
+                        return new RC(RCWho.EXECUTOR, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ExecutorGrammarMy.ConfigParams.BLOCK_SIZE + " must be positive");
+                }
+            } catch (NumberFormatException ex) { // The value is not a number
+                return RC_EXECUTOR_CONFIG_SEMANTIC_ERROR;
+            }
+
+            // The engine is optional, by default the arithmetic coder is used
+            Engine engine = Engine.ARITHMETIC;
+            option = config.GetOptionalValue(ExecutorGrammarMy.ConfigParams.ENGINE.asString());
+
+            if (!option.getKey().isSuccess())
+                return option.getKey();
+
+            if (option.getValue() != null) {
+                engine = Engine.ToEnum(option.getValue());
+
+                if (engine == Engine.INCORRECT) // Incorrect coding engine
+                    return RC_EXECUTOR_CONFIG_SEMANTIC_ERROR;
+                // The blocks of the container are always coded by the arithmetic coder
+                if (engine != Engine.ARITHMETIC && blockSize > 0)
+                    return new RC(RCWho.EXECUTOR, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The field "
+                            + ExecutorGrammarMy.ConfigParams.BLOCK_SIZE + " is supported only by the "
+                            + Engine.ARITHMETIC.asString() + " engine");
+            }
+            // The static model codes the whole input by the range coder itself
+            if (modelType == Model.STATIC && (blockSize > 0 || engine == Engine.BINARY))
+                return new RC(RCWho.EXECUTOR, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The "
+                        + Model.STATIC.asString() + " model supports neither the field "
+                        + ExecutorGrammarMy.ConfigParams.BLOCK_SIZE + " nor the " + Engine.BINARY.asString()
+                        + " engine");
+
+            // The dictionary is optional, without it the models start from the uniform statistics
+            dictionary = null;
+            option = config.GetOptionalValue(ExecutorGrammarMy.ConfigParams.DICTIONARY.asString());
+
+            if (!option.getKey().isSuccess())
+                return option.getKey();
+
+            if (option.getValue() != null) {
+                // The dictionary is meant for small inputs, it primes the single stream of the frequency models
+                if (blockSize > 0 || engine == Engine.BINARY || modelType == Model.STATIC)
+                    return new RC(RCWho.EXECUTOR, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The field "
+                            + ExecutorGrammarMy.ConfigParams.DICTIONARY + " supports neither the field "
+                            + ExecutorGrammarMy.ConfigParams.BLOCK_SIZE + " nor the " + Engine.BINARY.asString()
+                            + " engine nor the " + Model.STATIC.asString() + " model");
+
+                Pair<RC, ModelDictionary> loaded = ModelDictionary.load(option.getValue());
+                if (!loaded.getKey().isSuccess())
+                    return loaded.getKey();
+                dictionary = loaded.getValue();
+            }
+
+            // The independent packets are optional, by default the input is coded as one stream
+            independentModel = null;
+            option = config.GetOptionalValue(ExecutorGrammarMy.ConfigParams.INDEPENDENT_PACKETS.asString());
+
+            if (!option.getKey().isSuccess())
+                return option.getKey();
+
+            if (option.getValue() != null) {
+                String value = option.getValue();
+                if (!value.equalsIgnoreCase(TRUE_VALUE) && !value.equalsIgnoreCase(FALSE_VALUE))
+                    return new RC(RCWho.EXECUTOR, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                            + ExecutorGrammarMy.ConfigParams.INDEPENDENT_PACKETS + " must be "
+                            + TRUE_VALUE + " or " + FALSE_VALUE);
+                if (value.equalsIgnoreCase(TRUE_VALUE)) {
+                    // Every packet becomes a container with a single block, the decoder reads them as one stream
+                    if (mode != Mode.ENCODE || blockSize > 0 || engine != Engine.ARITHMETIC
+                            || modelType == Model.STATIC || dictionary != null)
+                        return new RC(RCWho.EXECUTOR, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The field "
+                                + ExecutorGrammarMy.ConfigParams.INDEPENDENT_PACKETS + " is supported only by the "
+                                + Mode.ENCODE.asString() + " mode with the " + Engine.ARITHMETIC.asString()
+                                + " engine and without the fields " + ExecutorGrammarMy.ConfigParams.BLOCK_SIZE
+                                + " and " + ExecutorGrammarMy.ConfigParams.DICTIONARY + " and the "
+                                + Model.STATIC.asString() + " model");
+                    independentModel = modelType;
+                }
+            }
+
+            // The credits are optional, by default they hold DEFAULT_CREDIT_PACKETS full packets
+            processedBuffers.setCredits((int)Math.min(Integer.MAX_VALUE, (long)DEFAULT_CREDIT_PACKETS * outBufferSize));
+            IsCreditsSpecified = false;
+            try {
+                option = config.GetOptionalValue(ExecutorGrammarMy.ConfigParams.CREDIT_BYTES.asString());
+
+                if (!option.getKey().isSuccess())
+                    return option.getKey();
+
+                if (option.getValue() != null) {
+                    int credits = Integer.parseInt(option.getValue());
+                    // A negative number or zero is specified as the value
+                    if (credits <= 0)
+                        return new RC(RCWho.EXECUTOR, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ExecutorGrammarMy.ConfigParams.CREDIT_BYTES + " must be positive");
+                    processedBuffers.setCredits(credits);
+                    IsCreditsSpecified = true;
+                }
+            } catch (NumberFormatException ex) { // The value is not a number
+                return RC_EXECUTOR_CONFIG_SEMANTIC_ERROR;
+            }
+
             writer = new WriterToBuffer();
+            stats.setCoding(mode == Mode.ENCODE);
+            stats.watch(availablePackets, processedBuffers);
             IsConfigSpecified = true;
-            startModel();
+            // The decoder primes the model only if the input has the dictionary tag
+            model = modelType.create(mode == Mode.ENCODE ? dictionary : null);
+            if (mode == Mode.ENCODE)
+                streamEncoder = new IntervalCoder.Encoder(model, writer.bits);
+            else
+                streamDecoder = new IntervalCoder.Decoder(model);
+            // The decoder recognizes the container, the range, binary and static codes by their headers,
+            // so the block size, the engine and the static model only switch the encoder.
+            // The binary engine has its own model
+            if (mode == Mode.ENCODE && blockSize > 0)
+                blockEncoder = new BlockContainer.Encoder(modelType, blockSize, writer::writeBytes);
+            if (mode == Mode.ENCODE && modelType == Model.STATIC)
+                staticEncoder = new StaticCoder.Encoder(writer::writeBytes);
+            else if (mode == Mode.ENCODE && engine == Engine.RANGE)
+                rangeEncoder = new RangeCoder.Encoder(modelType, dictionary, writer::writeBytes);
+            if (mode == Mode.ENCODE && engine == Engine.BINARY)
+                binaryEncoder = new BinaryCoder.Encoder(writer::writeBytes);
             return RC_SUCCESS;
         }
         return code;
@@ -359,265 +635,303 @@ public class ACExecutor implements IExecutor {
         if (!IsConsumerSpecified)
             return new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Consumer not specified");
 
-        availablePackets.addLast(packet_number);
+        availablePackets.put(packet_number);
         return CurrentState;
     }
 
     @Override
     public void run() {
-        while (availablePackets.isEmpty()) {
-            try {
-                Thread.sleep(100);
-            }
-            catch (InterruptedException e) {
-            }
-        }
+        boolean isRunning = true;
+        while (isRunning)
+            isRunning = step(availablePackets.take());
+    }
 
-        current_pack = availablePackets.removeFirst();
-        while (CurrentState.isSuccess()) {
-            byte[] bytes = (byte[]) Mediator.getData(current_pack);
+    // Codes one packet, the run loop and a fused chain of executors call it
+    @Override
+    public boolean step(long packet_number) {
+        stats.started();
+        current_pack = packet_number;
+        if (CurrentState.isSuccess()) {
+            Object data = Mediator.getData(current_pack);
+            ByteBuffer bytes;
+            if (data == null)
+                bytes = null;
+            else if (currentType == TYPE.BYTE_BUFFER)
+                bytes = (ByteBuffer) data;
+            else
+                bytes = ByteBuffer.wrap((byte[]) data);
+            if (bytes != null)
+                stats.countIn(bytes.remaining());
 
-            if (mode == Mode.ENCODE) {
+            if (independentModel != null) {
+                CurrentState = EncodeIndependent(bytes);
+            }
+            else if (mode == Mode.ENCODE) {
                 CurrentState = Encode(bytes);
             }
             else {
                 CurrentState = Decode(bytes);
             }
-            if(bytes == null)
-                return;
-
-            while (availablePackets.isEmpty()) {
-                try {
-                    Thread.sleep(100);
-                }
-                catch (InterruptedException e) {
-                }
+            // The packet is processed completely, so it is given back to the provider
+            if (data != null)
+                Mediator.release(data);
+            if (CurrentState.isSuccess()) {
+                if (bytes == null)
+                    stats.ended();
+                return bytes != null;
             }
-            current_pack = availablePackets.removeFirst();
         }
+
+        // Stop the provider and tell the consumer that there will be no more packets
+        if (blockEncoder != null)
+            blockEncoder.cancel();
+        if (blockDecoder != null)
+            blockDecoder.cancel();
+        if (staticEncoder != null)
+            staticEncoder.cancel();
+        BufferPool.SHARED.release(RCWho.EXECUTOR, outBuffer);
+        outBuffer = null;
+        Mediator.cancel();
+        processedBuffers.fail(CurrentState);
+        Next.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
+        stats.ended();
+        return false;
     }
 
-    private void startModel() {
-        // Fill buffers for fast byte-to-index and index-to-byte conversion
-        for (int counter = 0; counter < TABLE_SIZE - 2; counter++) {
-            byteToIndex[counter] = counter + 1;
-            indexToByte[counter + 1] = counter;
+    // Codes the packet as a container of its own and passes it on under the number of the input packet,
+    // so the replicas of the executor may code the packets side by side
+    private RC EncodeIndependent(ByteBuffer bytes) {
+        if (bytes == null) {
+            BufferPool.SHARED.release(RCWho.EXECUTOR, outBuffer);
+            outBuffer = null;
+            processedBuffers.close();
+            return Next.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
         }
-        // Fill buffer indicating the number of each character and buffer indicating the accumulated number of characters with default values
-        for (int counter = 0; counter < TABLE_SIZE; counter++) {
-            table[counter] = 1;
-            cumulative[counter] = TABLE_SIZE - 1 - counter;
+        ByteBuffer code = BlockContainer.encodeSingle(independentModel, bytes);
+        int length = code.remaining();
+        if (!processedBuffers.publish(current_pack, code)) {
+            recycle(code);
+            return writer.publishError();
         }
-        table[0] = 0;
+        stats.countOut(length);
+        return Next.consume(current_pack);
     }
 
-    private void updateModel(int index) {
-        int i;
-        if (cumulative[0] == MAX_VALUE) { // Scale values
-            int cumul = 0;
-            for (i = TABLE_SIZE - 1; i >= 0; i--) {
-                table[i] = (table[i] + 1) / 2;
-                cumulative[i] = cumul;
-                cumul += table[i];
-            }
-        }
-        i = index;
-        while (table[i] == table[i - 1]) { // It is looking for a place for the specified symbol so that it is found correctly during decoding
-            i--;
+    private RC Encode(ByteBuffer bytes) {
+        if (dictionary != null && !isTagWritten) { // The code made with the dictionary starts with its tag
+            isTagWritten = true;
+            RC tmp = writer.writeBytes(ModelDictionary.TAG, 0, ModelDictionary.TAG.length);
+            if (tmp.isSuccess())
+                tmp = writer.writeBytes(dictionary.getId(), 0, ModelDictionary.ID_SIZE);
+            if (!tmp.isSuccess())
+                return tmp;
         }
-        if (i < index) { // Make an exchange
-            int b_i, b_index;
-            b_i = indexToByte[i];
-            b_index = indexToByte[index];
-            indexToByte[i] = b_index;
-            indexToByte[index] = b_i;
-            byteToIndex[b_i] = index;
-            byteToIndex[b_index] = i;
+        if (staticEncoder != null) {
+            RC tmp = staticEncoder.process(bytes);
+            if (bytes == null && tmp.isSuccess())
+                return writer.outBufferClose();
+            return tmp;
         }
-        table[i] += 1; // Perform an increment
-        while (i > 0) {
-            i -= 1;
-            cumulative[i] += 1;
+        if (binaryEncoder != null) {
+            RC tmp = binaryEncoder.process(bytes);
+            if (bytes == null && tmp.isSuccess())
+                return writer.outBufferClose();
+            return tmp;
         }
-    }
-
-    private RC bitPlusFollow(int bit) {
-        RC tmp = writer.writeBit(bit); // Write the specified bit to the buffer
-        if(!tmp.isSuccess())
+        if (rangeEncoder != null) {
+            RC tmp = rangeEncoder.process(bytes);
+            if (bytes == null && tmp.isSuccess())
+                return writer.outBufferClose();
             return tmp;
-
-        while (bitsToFollow > 0) { // Process additional bits
-            tmp = writer.writeBit(1 - bit);
-            if(!tmp.isSuccess())
-                return tmp;
-            bitsToFollow--;
         }
-        return RC_SUCCESS;
-    }
-
-    private RC encodeSymbol(int symbol) {
-        long range = high - low + 1;   // Size of the current code region
-        high = low + (range * cumulative[symbol - 1]) / cumulative[0] - 1;
-        low = low + (range * cumulative[symbol]) / cumulative[0];
-
-        RC tmp;
-        for (;;) {
-            if (high < HALF) {
-                tmp = bitPlusFollow(0);    // Output 0 if in low half
-                if(!tmp.isSuccess())
-                    return tmp;
-            }
-            else if (low >= HALF) {
-                tmp = bitPlusFollow(1);    // Output 1 if in high half
-                if(!tmp.isSuccess())
-                    return tmp;
-                low -= HALF;
-                high -= HALF;          // Subtract offset to top
-            }
-            else if (low >= FIRST_QTR && high < THIRD_QTR) { // Output an opposite bit later if in middle half
-                bitsToFollow += 1;
-                low -= FIRST_QTR;      // Subtract offset to middle
-                high -= FIRST_QTR;
-            }
-            else break;                // Otherwise exit loop
-            low = 2 * low;
-            high = 2 * high + 1;       // Scale up code range
+        if (blockEncoder != null) {
+            RC tmp = blockEncoder.process(bytes);
+            if (bytes == null && tmp.isSuccess())
+                return writer.outBufferClose();
+            return tmp;
         }
-        return RC_SUCCESS;
-    }
 
-    private RC Encode(byte[] bytes) {
         if (bytes == null) { // Finish coding
-            encodeSymbol(EOF_SYMBOL);
-
-            bitsToFollow++;
-            if (low < FIRST_QTR)
-                bitPlusFollow(0);
-            else
-                bitPlusFollow(1);
+            streamEncoder.encode(model.getEofIndex());
+            streamEncoder.finish();
 
             return writer.outBufferClose();
         }
 
         int index;
-        ReaderFromBuffer reader = new ReaderFromBuffer(bytes);
-        while (!reader.isEnded()) { // Execute for all buffer bytes
-            byte data = reader.readByte();
-            index = byteToIndex[Byte.toUnsignedInt(data)];
-            RC tmp = encodeSymbol(index);
+        int end = bytes.limit();
+        for (int position = bytes.position(); position < end; position++) { // Execute for all buffer bytes
+            byte data = bytes.get(position);
+            index = model.byteToIndex(Byte.toUnsignedInt(data));
+            RC tmp = streamEncoder.encode(index);
             if(!tmp.isSuccess())
                 return tmp;
-            updateModel(index);
+            model.update(index);
         }
 
         return RC_SUCCESS;
     }
 
-    private int makeActual(ReaderFromBuffer reader){
-        if(!correctValue){ // Restore the value in such a way as to simulate a return to the place where the loop was interrupted
-            int bit;
-            bit = reader.readBit();
-            if (bit == ReaderFromBuffer.EOF) {
-                return ReaderFromBuffer.EOF;
-            }
-            if(bit > 1)
-                return -bit;
+    // Returns SUCCESS, EOF or the error code of the interval decoder, the symbol is left in decodedSymbol
+    private int decodeSymbol(BitReader reader) {
+        decodedSymbol = 0;
+        int tmp = streamDecoder.resume(reader); // Restoring the actual value of the parameter
+        if(tmp != SUCCESS)
+            return tmp;
 
-            currentValue = 2 * currentValue + bit;
-        }
-        for (;;) {
-            if (high < HALF) {
-                // Nothing
+        decodedSymbol = streamDecoder.findSymbol(); // Find symbol
+        return streamDecoder.take(decodedSymbol, reader);
+    }
+
+    private RC Decode(ByteBuffer bytes) {
+        while (!isFormatKnown) {
+            // Collect the first bytes to tell the block container from a single stream
+            while (bytes != null && bytes.hasRemaining() && magicLength < magic.length)
+                magic[magicLength++] = bytes.get();
+            if (bytes != null && magicLength < magic.length)
+                return RC_SUCCESS;
+            // The independent packets of an empty file make no containers at all, so the empty input is empty
+            if (magicLength == 0 && !isTagFound) {
+                isFormatKnown = true;
+                decodingComplete = true;
+                return writer.outBufferClose();
             }
-            else if (low >= HALF) {    // Expand high half
-                currentValue -= HALF;
-                low -= HALF;
-                high -= HALF;          // Subtract offset to top
+
+            // The dictionary tag and its id come before the code, the format is told by the bytes after them
+            if (isTagFound && !isTagChecked) {
+                if (magicLength < ModelDictionary.ID_SIZE)
+                    return new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR,
+                            "Incorrect input file: the header is cut off");
+                if (!dictionary.hasId(magic))
+                    return new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR,
+                            "The input file is coded with another dictionary");
+                isTagChecked = true;
+                model.prime(dictionary);
+                magicLength = 0;
+                continue;
             }
-            else if (low >= FIRST_QTR && high < THIRD_QTR) { // Expand middle half
-                currentValue -= FIRST_QTR;
-                low -= FIRST_QTR;      // Subtract offset to middle
-                high -= FIRST_QTR;
+            if (!isTagFound && Arrays.equals(magic, ModelDictionary.TAG)) {
+                if (dictionary == null)
+                    return new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR,
+                            "The input file is coded with a dictionary, the field "
+                            + ExecutorGrammarMy.ConfigParams.DICTIONARY + " must be set");
+                isTagFound = true;
+                magicLength = 0;
+                continue;
             }
+
+            isFormatKnown = true;
+            // Only the single stream and the range code are made with the dictionary
+            if (isTagFound && (Arrays.equals(magic, BlockContainer.MAGIC) || Arrays.equals(magic, BinaryCoder.MAGIC)
+                    || Arrays.equals(magic, StaticCoder.MAGIC)))
+                return RC_INCORRECT_INPUT;
+            if (Arrays.equals(magic, BlockContainer.MAGIC))
+                blockDecoder = new BlockContainer.Decoder(writer::writeBytes);
+            else if (Arrays.equals(magic, RangeCoder.MAGIC))
+                rangeDecoder = new RangeCoder.Decoder(isTagFound ? dictionary : null, writer::writeBytes);
+            else if (Arrays.equals(magic, BinaryCoder.MAGIC))
+                binaryDecoder = new BinaryCoder.Decoder(writer::writeBytes);
+            else if (Arrays.equals(magic, StaticCoder.MAGIC))
+                staticDecoder = new StaticCoder.Decoder(writer::writeBytes);
             else {
-                correctValue = true;
-                break;                // Otherwise exit loop
-            }
-            low = 2 * low;
-            high = 2 * high + 1;       // Scale up code range
-
-            int bit;
-            bit = reader.readBit();
-            if (bit == ReaderFromBuffer.EOF) { // Interrupting the loop because the buffer has run out
-                correctValue = false;
-                return ReaderFromBuffer.EOF;
+                RC tmp = DecodeStream(ByteBuffer.wrap(magic, 0, magicLength));
+                if (!tmp.isSuccess())
+                    return tmp;
             }
-            if(bit > 1) // Too many dummy bits
-                return -bit;
-
-            currentValue = 2 * currentValue + bit;
         }
-        return SUCCESS;
-    }
 
-    private Pair<Integer, Integer> decodeSymbol(ReaderFromBuffer reader) {
-        if(!correctValue) { // Restoring the actual value of the parameter
-            int tmp = makeActual(reader);
-            if(tmp != SUCCESS)
-                return new Pair<>(tmp, 0);
+        if (staticDecoder != null) {
+            RC tmp = staticDecoder.process(bytes);
+            if (bytes == null && tmp.isSuccess())
+                return writer.outBufferClose();
+            return tmp;
         }
+        if (binaryDecoder != null) {
+            RC tmp = binaryDecoder.process(bytes);
+            if (bytes == null && tmp.isSuccess())
+                return writer.outBufferClose();
+            return tmp;
+        }
+        if (rangeDecoder != null) {
+            RC tmp = rangeDecoder.process(bytes);
+            if (bytes == null && tmp.isSuccess())
+                return writer.outBufferClose();
+            return tmp;
+        }
+        if (blockDecoder == null)
+            return DecodeStream(bytes);
+        RC tmp = blockDecoder.process(bytes);
+        if (bytes == null && tmp.isSuccess())
+            return writer.outBufferClose();
+        return tmp;
+    }
 
-        long range = high - low + 1;   // Size of the current code region
-        int symbol;
-        long cumul = ((currentValue - low + 1) * cumulative[0] - 1) / range;
-
-        for (symbol = 1; cumulative[symbol] > cumul; ++symbol); // Find symbol
-        high = low + (range * cumulative[symbol - 1]) / cumulative[0] - 1;
-        low = low + (range * cumulative[symbol]) / cumulative[0];
-
-        int tmp = makeActual(reader); // Restoring the actual value of the parameter
-        if(tmp != SUCCESS)
-            return new Pair<>(tmp, symbol);
-
-        return new Pair<>(SUCCESS, symbol);
+    // Whether the stop symbol that has just been read is followed by the end of the stream
+    private boolean isStreamEnd() {
+        return reader.getGarbageBits() >= MIN_END_GARBAGE_BITS && reader.getGarbageBits() <= MAX_END_GARBAGE_BITS;
     }
 
-    private RC Decode(byte[] bytes){
-        if (bytes != null && decodingComplete)
-            return new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Incorrect input file...");
+    private RC DecodeStream(ByteBuffer bytes){
+        if (bytes != null && decodingComplete) {
+            // A stop symbol with its own index may be decoded before the padding after it is received
+            trailingBytes += bytes.remaining();
+            if (!model.hasOwnEofIndex() || trailingBytes > MAX_TRAILING_BYTES)
+                return RC_DATA_AFTER_END;
+            return RC_SUCCESS;
+        }
         if(bytes == null && decodingComplete)
                 return RC_SUCCESS;
 
-        ReaderFromBuffer reader = new ReaderFromBuffer(bytes);
-        if(valueBitsFilled != VALUE_BITS_NUM) { // Perform the initial filling of the parameter
-            for (int counter = valueBitsFilled; counter < VALUE_BITS_NUM; ++counter) {
-                int bit = reader.readBit();
-                if (bit == ReaderFromBuffer.EOF)
-                    return RC_SUCCESS;
-                if (bit > 1)
-                    return new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Incorrect input file");
-
-                currentValue = 2 * currentValue + bit;
-                ++valueBitsFilled;
+        reader.reset(bytes);
+        if (isEofPending) {
+            isEofPending = false;
+            // If the input is over, the symbol is read up to the end to tell the stop symbol from a byte
+            if (bytes == null) {
+                if (streamDecoder.resume(reader) != SUCCESS)
+                    return RC_INCORRECT_INPUT;
+                if (isStreamEnd()) {
+                    decodingComplete = true;
+                    return writer.outBufferClose();
+                }
             }
+            RC tmp = writer.writeByte((byte)model.indexToByte(model.getEofIndex()));
+            if(!tmp.isSuccess())
+                return tmp;
+            model.update(model.getEofIndex());
         }
+        int filled = streamDecoder.resume(reader); // Perform the initial filling of the parameter
+        if (filled == BitReader.EOF)
+            return RC_SUCCESS;
+        if (filled != SUCCESS)
+            return RC_INCORRECT_INPUT;
 
         while (true) {
-            Pair<Integer, Integer> p = decodeSymbol(reader);
-            int symbol = p.getValue();
-            if(p.getKey() != ReaderFromBuffer.EOF && p.getKey() < 0)
-                return new RC(RCWho.EXECUTOR, RCType.CODE_CUSTOM_ERROR, "Incorrect input file");
-            if (symbol == EOF_SYMBOL && reader.isEnded() && current_pack == IConsumer.END_OF_FILE_PACKET_NUMBER) { // Executes until it encounters a stop symbol
+            int status = decodeSymbol(reader);
+            int symbol = decodedSymbol;
+            // Executes until it encounters a stop symbol. The bits after it are padding, so running out of them is fine.
+            // If the stop symbol also codes a byte, it means the end only when the input is over right after it
+            if (symbol == model.getEofIndex() && (model.hasOwnEofIndex()
+                    || reader.isEnded() && current_pack == IConsumer.END_OF_FILE_PACKET_NUMBER && isStreamEnd())) {
                 decodingComplete = true;
                 return writer.outBufferClose();
             }
+            if(status != BitReader.EOF && status < 0)
+                return RC_INCORRECT_INPUT;
+            if(symbol == 0) // The buffer has run out before the next symbol could be decoded
+                break;
+            // A rare stop symbol takes more bits than the padding after it, so the end is usually found here.
+            // Whether it is the end is known only from the next packet
+            if (status == BitReader.EOF && symbol == model.getEofIndex()) {
+                isEofPending = true;
+                break;
+            }
 
-            RC tmp = writer.writeByte((byte)indexToByte[symbol]);
+            RC tmp = writer.writeByte((byte)model.indexToByte(symbol));
             if(!tmp.isSuccess())
                 return tmp;
-            updateModel(symbol);
+            model.update(symbol);
 
-            if(p.getKey() == ReaderFromBuffer.EOF)
+            if(status == BitReader.EOF)
                 break;
         }
         return RC_SUCCESS;
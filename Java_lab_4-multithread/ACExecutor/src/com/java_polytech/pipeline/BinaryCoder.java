@@ -0,0 +1,257 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.RC;
+
+import java.nio.ByteBuffer;
+
+// Binary arithmetic coder: every byte is coded as 8 binary decisions predicted by BitPredictor.
+// The interval [x1, x2] of 32-bit numbers is split in proportion to the probability of the bit by a shift and
+// a multiplication, so unlike the frequency models there is no division and no table update per byte.
+// The interval is renormalized by whole bytes without carry propagation.
+// Every byte is preceded by a decision whether the code ends here, its probability quickly becomes tiny.
+// Layout: MAGIC, VERSION (1 byte), the code. The code ends with CODE_BYTES bytes of x1.
+// The decoder reads exactly as many bytes as the encoder writes, so it knows where the code ends
+class BinaryCoder {
+    static final byte[] MAGIC = {'A', 'C', 'B', 'N'};
+    static private final int VERSION = 1;
+    static private final int HEADER_SIZE = 1;                 // Size of the header after MAGIC
+    static private final int CODE_BYTES = 4;                  // The borders are 32-bit numbers
+    static private final int BYTE_BITS = 8;
+    static private final int BYTE_MASK = 0xff;
+    static private final int TOP_SHIFT = (CODE_BYTES - 1) * BYTE_BITS; // The highest byte of the borders
+    static private final long MASK = 0xffffffffL;
+    static private final long TOP_MASK = (long)BYTE_MASK << TOP_SHIFT;
+    static private final int END = 1;                         // The decision that ends the code
+    static private final int MORE = 0;
+    // A decision moves at most CODE_BYTES bytes, a byte is coded by BYTE_BITS decisions and the end decision
+    static private final int MAX_SYMBOL_BYTES = (BYTE_BITS + 1) * CODE_BYTES;
+    static private final int OUT_SIZE = 4096;                 // Size of the local output buffer
+
+    static private RC error(String info) {
+        return new RC(RC.RCWho.EXECUTOR, RC.RCType.CODE_CUSTOM_ERROR, info);
+    }
+
+    // Returns the border between the decisions 1 ([x1, middle]) and 0 ([middle + 1, x2])
+    static private long middle(long x1, long x2, int probability) {
+        return x1 + ((x2 - x1) >>> BitPredictor.PROBABILITY_BITS) * probability;
+    }
+
+    static class Encoder {
+        private final BitPredictor predictor = new BitPredictor();
+        private int endProbability = BitPredictor.PROBABILITY_HALF;
+        private final ByteSink sink;
+        private final byte[] out = new byte[OUT_SIZE];
+        private int outLength = 0;
+        private long x1 = 0;
+        private long x2 = MASK;
+        private boolean isHeaderWritten = false;
+
+        Encoder(ByteSink sink) {
+            this.sink = sink;
+        }
+
+        // Takes the next packet, null finishes the code
+        RC process(ByteBuffer bytes) {
+            if (!isHeaderWritten) {
+                System.arraycopy(MAGIC, 0, out, 0, MAGIC.length);
+                out[MAGIC.length] = (byte)VERSION;
+                outLength = MAGIC.length + HEADER_SIZE;
+                isHeaderWritten = true;
+            }
+
+            if (bytes == null) {
+                RC rc = encode(END, endProbability);
+                for (int i = 0; i < CODE_BYTES && rc.isSuccess(); i++) {
+                    rc = put((byte)(x1 >>> TOP_SHIFT));
+                    x1 = (x1 << BYTE_BITS) & MASK;
+                }
+                return rc.isSuccess() ? flush() : rc;
+            }
+
+            int end = bytes.limit();
+            for (int position = bytes.position(); position < end; position++) {
+                RC rc = encode(MORE, endProbability);
+                endProbability = BitPredictor.adapt(endProbability, MORE);
+                int value = bytes.get(position) & BYTE_MASK;
+                for (int shift = BYTE_BITS - 1; shift >= 0 && rc.isSuccess(); shift--) {
+                    int bit = (value >>> shift) & 1;
+                    rc = encode(bit, predictor.predict());
+                    predictor.update(bit);
+                }
+                if (!rc.isSuccess())
+                    return rc;
+            }
+            return flush();
+        }
+
+        private RC encode(int bit, int probability) {
+            long middle = middle(x1, x2, probability);
+            if (bit == 1)
+                x2 = middle;
+            else
+                x1 = middle + 1;
+            while (((x1 ^ x2) & TOP_MASK) == 0) { // The highest byte is known
+                RC rc = put((byte)(x2 >>> TOP_SHIFT));
+                if (!rc.isSuccess())
+                    return rc;
+                x1 = (x1 << BYTE_BITS) & MASK;
+                x2 = ((x2 << BYTE_BITS) & MASK) | BYTE_MASK;
+            }
+            return RC.RC_SUCCESS;
+        }
+
+        private RC put(byte b) {
+            out[outLength++] = b;
+            if (outLength == OUT_SIZE)
+                return flush();
+            return RC.RC_SUCCESS;
+        }
+
+        private RC flush() {
+            RC rc = sink.write(out, 0, outLength);
+            outLength = 0;
+            return rc;
+        }
+    }
+
+    static class Decoder {
+        private enum State { HEADER, INIT, SYMBOLS, END }
+
+        private final BitPredictor predictor = new BitPredictor();
+        private int endProbability = BitPredictor.PROBABILITY_HALF;
+        private final ByteSink sink;
+        private final byte[] out = new byte[OUT_SIZE];
+        private int outLength = 0;
+        private State state = State.HEADER;
+        private long x1 = 0;
+        private long x2 = MASK;
+        private long x = 0;
+        private final byte[] stash = new byte[MAX_SYMBOL_BYTES + 1]; // Bytes left from the previous packets
+        private int stashIndex = 0;
+        private int stashLength = 0;
+        private ByteBuffer packet;
+        private int packetIndex = 0;
+        private int packetEnd = 0;
+        private boolean isOverread = false;     // Whether more bytes were needed than the input has
+
+        // The code is recognized by MAGIC, the decoder is created after it
+        Decoder(ByteSink sink) {
+            this.sink = sink;
+        }
+
+        private int available() {
+            return stashLength - stashIndex + packetEnd - packetIndex;
+        }
+
+        private int next() {
+            if (stashIndex < stashLength)
+                return stash[stashIndex++] & BYTE_MASK;
+            if (packetIndex < packetEnd)
+                return packet.get(packetIndex++) & BYTE_MASK;
+            isOverread = true;
+            return 0;
+        }
+
+        // Takes the next packet, null means the end of the input
+        RC process(ByteBuffer bytes) {
+            boolean isLast = bytes == null;
+            packet = bytes;
+            packetIndex = isLast ? 0 : bytes.position();
+            packetEnd = isLast ? 0 : bytes.limit();
+
+            RC rc = decode(isLast);
+            if (rc.isSuccess())
+                rc = flush();
+            if (!rc.isSuccess())
+                return rc;
+            if (state == State.END) {
+                if (available() != 0)
+                    return error("Incorrect input file: data after the end of the code");
+                if (isLast)
+                    return RC.RC_SUCCESS;
+            }
+            else if (isLast)
+                return error("Incorrect input file: the code is cut off");
+
+            // Keep the unread bytes for the next packet, there are fewer of them than a byte may need
+            int rest = available();
+            for (int i = 0; i < rest; i++)
+                stash[i] = (byte)next();
+            stashIndex = 0;
+            stashLength = rest;
+            packet = null;
+            return RC.RC_SUCCESS;
+        }
+
+        private RC decode(boolean isLast) {
+            if (state == State.HEADER) {
+                if (available() < HEADER_SIZE)
+                    return RC.RC_SUCCESS;
+                if (next() != VERSION)
+                    return error("Incorrect input file: unknown binary code version");
+                state = State.INIT;
+            }
+            if (state == State.INIT) {
+                if (available() < CODE_BYTES)
+                    return RC.RC_SUCCESS;
+                for (int i = 0; i < CODE_BYTES; i++)
+                    x = (x << BYTE_BITS) | next();
+                state = State.SYMBOLS;
+            }
+
+            while (state == State.SYMBOLS && (isLast || available() > MAX_SYMBOL_BYTES)) {
+                int decision = decodeBit(endProbability);
+                if (decision == END) {
+                    state = State.END;
+                    break;
+                }
+                endProbability = BitPredictor.adapt(endProbability, MORE);
+                int value = 0;
+                for (int i = 0; i < BYTE_BITS; i++) {
+                    int bit = decodeBit(predictor.predict());
+                    predictor.update(bit);
+                    value = (value << 1) | bit;
+                }
+                if (isOverread)
+                    return error("Incorrect input file: the code is cut off");
+                if (x < x1 || x > x2)
+                    return error("Incorrect input file: corrupted code");
+
+                out[outLength++] = (byte)value;
+                if (outLength == OUT_SIZE) {
+                    RC rc = flush();
+                    if (!rc.isSuccess())
+                        return rc;
+                }
+            }
+            if (isOverread)
+                return error("Incorrect input file: the code is cut off");
+            return RC.RC_SUCCESS;
+        }
+
+        private int decodeBit(int probability) {
+            long middle = middle(x1, x2, probability);
+            int bit;
+            if (x <= middle) {
+                bit = 1;
+                x2 = middle;
+            }
+            else {
+                bit = 0;
+                x1 = middle + 1;
+            }
+            while (((x1 ^ x2) & TOP_MASK) == 0) {
+                x1 = (x1 << BYTE_BITS) & MASK;
+                x2 = ((x2 << BYTE_BITS) & MASK) | BYTE_MASK;
+                x = ((x << BYTE_BITS) & MASK) | next();
+            }
+            return bit;
+        }
+
+        private RC flush() {
+            RC rc = sink.write(out, 0, outLength);
+            outLength = 0;
+            return rc;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.java_polytech.pipeline;
+
+import java.util.Arrays;
+
+// Predicts the bits of a byte one by one for the binary engine. Every bit is predicted by three models:
+// the bits of the current byte seen so far (order 0), the same with the previous byte (order 1) and with the
+// hash of the two previous bytes (order 2). Their probabilities are mixed in the logistic domain: each one is
+// stretched (ln(p / (1 - p))), the weighted sum is squashed back. The weights are chosen by the bits seen so far
+// and learn from the coding error, so the mixer trusts the model that predicts this data better.
+// Probabilities are PROBABILITY_BITS-bit numbers of the bit being 1, they adapt by a shift, so there is no division
+class BitPredictor {
+    static final int PROBABILITY_BITS = 12;
+    static final int PROBABILITY_ONE = 1 << PROBABILITY_BITS;
+    static final int PROBABILITY_HALF = PROBABILITY_ONE / 2;
+    static private final int ADAPTATION_SHIFT = 4;         // A probability moves by 1/16 of the error
+    static private final int BYTE_BITS = 8;
+    static private final int BYTE_MASK = 0xff;
+    static private final int HISTORY_MASK = 0xffff;        // The two previous bytes
+    static private final int HASH_BITS = 12;               // Number of bits of the order-2 context hash
+    static private final int HASH_MULTIPLIER = 0x9E3779B1;
+    // The stretched values are fixed-point numbers with STRETCH_SHIFT fractional bits,
+    // they lie within [-STRETCH_LIMIT, STRETCH_LIMIT]
+    static private final int STRETCH_SHIFT = 8;
+    static private final int STRETCH_LIMIT = 2047;
+    static private final int BIAS = 1 << STRETCH_SHIFT;    // The constant input of the mixer
+    static private final int INPUTS = 4;                   // The three models and the bias
+    static private final int WEIGHT_SHIFT = 16;            // Number of fractional bits of the weights
+    static private final int INITIAL_WEIGHT = 1 << (WEIGHT_SHIFT - 2);
+    static private final int LEARNING_RATE = 12;
+
+    static private final int[] SQUASH = new int[2 * (STRETCH_LIMIT + 1)]; // SQUASH[d + STRETCH_LIMIT + 1]
+    static private final int[] STRETCH = new int[PROBABILITY_ONE];
+
+    // StrictMath gives the same tables on every machine, otherwise the decoder might disagree with the encoder
+    static {
+        for (int d = -STRETCH_LIMIT - 1; d <= STRETCH_LIMIT; d++) {
+            int p = (int)Math.round(PROBABILITY_ONE / (1 + StrictMath.exp(-(double)d / (1 << STRETCH_SHIFT))));
+            SQUASH[d + STRETCH_LIMIT + 1] = Math.max(1, Math.min(PROBABILITY_ONE - 1, p));
+        }
+        // Stretch is the inverse of squash
+        int p = 0;
+        for (int d = -STRETCH_LIMIT; d <= STRETCH_LIMIT; d++)
+            for (int limit = squash(d); p <= limit; p++)
+                STRETCH[p] = d;
+        for (; p < PROBABILITY_ONE; p++)
+            STRETCH[p] = STRETCH_LIMIT;
+    }
+
+    static private int squash(long d) {
+        return SQUASH[(int)Math.max(-STRETCH_LIMIT - 1, Math.min(STRETCH_LIMIT, d)) + STRETCH_LIMIT + 1];
+    }
+
+    // Moves the probability towards the bit
+    static int adapt(int p, int bit) {
+        return p + (((bit << PROBABILITY_BITS) - p) >> ADAPTATION_SHIFT);
+    }
+
+    private final short[] order0 = new short[1 << BYTE_BITS];
+    private final short[] order1 = new short[1 << (2 * BYTE_BITS)];
+    private final short[] order2 = new short[1 << (HASH_BITS + BYTE_BITS)];
+    private final int[] weights = new int[INPUTS << BYTE_BITS];
+    private final int[] inputs = new int[INPUTS];
+    private int partial = 1;          // The bits of the current byte after a leading 1
+    private int history = 0;          // The two previous bytes, the last one in the lowest bits
+    private int order1Base = 0;       // Offsets of the tables of the current contexts
+    private int order2Base = 0;
+    private int index0, index1, index2;
+    private int prediction;           // The last returned probability
+
+    BitPredictor() {
+        Arrays.fill(order0, (short)PROBABILITY_HALF);
+        Arrays.fill(order1, (short)PROBABILITY_HALF);
+        Arrays.fill(order2, (short)PROBABILITY_HALF);
+        for (int i = 0; i < weights.length; i++)
+            weights[i] = i % INPUTS == INPUTS - 1 ? 0 : INITIAL_WEIGHT;
+        inputs[INPUTS - 1] = BIAS;
+    }
+
+    // Returns the probability that the next bit is 1
+    int predict() {
+        index0 = partial;
+        index1 = order1Base | partial;
+        index2 = order2Base | partial;
+        inputs[0] = STRETCH[order0[index0]];
+        inputs[1] = STRETCH[order1[index1]];
+        inputs[2] = STRETCH[order2[index2]];
+        int set = partial * INPUTS;
+        long dot = 0;
+        for (int i = 0; i < INPUTS; i++)
+            dot += (long)weights[set + i] * inputs[i];
+        prediction = squash(dot >> WEIGHT_SHIFT);
+        return prediction;
+    }
+
+    // Takes the coded bit into account, predict must be called before
+    void update(int bit) {
+        int error = ((bit << PROBABILITY_BITS) - prediction) * LEARNING_RATE;
+        int set = partial * INPUTS;
+        for (int i = 0; i < INPUTS; i++)
+            weights[set + i] += (inputs[i] * error + (1 << (WEIGHT_SHIFT - 1))) >> WEIGHT_SHIFT;
+        order0[index0] = (short)adapt(order0[index0], bit);
+        order1[index1] = (short)adapt(order1[index1], bit);
+        order2[index2] = (short)adapt(order2[index2], bit);
+
+        partial = (partial << 1) | bit;
+        if (partial > BYTE_MASK) { // The byte is complete
+            history = ((history << BYTE_BITS) | (partial & BYTE_MASK)) & HISTORY_MASK;
+            partial = 1;
+            order1Base = (history & BYTE_MASK) << BYTE_BITS;
+            order2Base = ((history * HASH_MULTIPLIER) >>> (Integer.SIZE - HASH_BITS)) << BYTE_BITS;
+        }
+    }
+}
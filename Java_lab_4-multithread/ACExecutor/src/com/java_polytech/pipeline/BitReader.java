@@ -0,0 +1,119 @@
+package com.java_polytech.pipeline;
+
+import java.nio.ByteBuffer;
+
+// Reads the bits of a packet starting from the least significant bit of every byte, or from the most significant
+// one for the code of BlockCoder. The packet is loaded by 64-bit words, so most calls take a bit with a single shift
+class BitReader {
+    static public final int EOF = -1;           // Indicates the end of the buffer
+    static private final int WORD_BITS = 64;
+    static private final int WORD_BYTES = 8;
+    static private final int BYTE_BITS = 8;
+    static private final long BYTE_MASK = 0xff;
+    private ByteBuffer buf;                     // Received buffer, null after the end of file
+    private int index;                          // Position of the next byte to load
+    private int end;                            // Position after the last byte of the packet
+    private long word = 0;                      // Loaded bits that are not read yet, the next one is the lowest or the highest
+    private int wordBits = 0;                   // Number of loaded bits
+    private int garbageBits = 0;                // Number of dummy bits
+    private final int maxGarbageBits;           // Number of dummy bits that may be read after the end of file
+    private final boolean isMsbFirst;           // Whether the first bit of a byte is its most significant one
+    private boolean isExhausted;                // Whether reading has run into the end of the buffer
+
+    BitReader(ByteBuffer bytes, int maxGarbageBits) {
+        this(bytes, maxGarbageBits, false);
+    }
+
+    BitReader(ByteBuffer bytes, int maxGarbageBits, boolean isMsbFirst) {
+        this(maxGarbageBits, isMsbFirst);
+        reset(bytes);
+    }
+
+    // The reader is given the packets later through reset
+    BitReader(int maxGarbageBits) {
+        this(maxGarbageBits, false);
+    }
+
+    private BitReader(int maxGarbageBits, boolean isMsbFirst) {
+        this.maxGarbageBits = maxGarbageBits;
+        this.isMsbFirst = isMsbFirst;
+        isExhausted = true;
+    }
+
+    // Starts reading the next packet, the bits left from the previous one are dropped
+    void reset(ByteBuffer bytes) {
+        buf = bytes;
+        if (bytes != null) {
+            index = bytes.position();
+            end = bytes.limit();
+        }
+        else {
+            index = 0;
+            end = 0;
+        }
+        word = 0;
+        wordBits = 0;
+        garbageBits = 0;
+        isExhausted = index >= end;
+    }
+
+    // Returns the next bit or EOF. After the end of file, up to 'maxGarbageBits' dummy ones are returned,
+    // then their number, which is greater than one
+    public int readBit() {
+        if (wordBits == 0 && !refill()) {
+            if (buf == null) { // In case of end of file
+                garbageBits++;
+                if (garbageBits > maxGarbageBits) // If there are too many dummy bits it is an error
+                    return garbageBits;
+                else // Otherwise, return a dummy bit
+                    return 1;
+            }
+            isExhausted = true;
+            return EOF;
+        }
+        int bit;
+        if (isMsbFirst) {
+            bit = (int)(word >>> (WORD_BITS - 1));
+            word <<= 1;
+        }
+        else {
+            bit = (int)word & 1;
+            word >>>= 1;
+        }
+        wordBits--;
+        return bit;
+    }
+
+    private boolean refill() {
+        if (buf == null || index >= end)
+            return false;
+        if (end - index >= WORD_BYTES) {
+            word = buf.getLong(index);
+            if (!isMsbFirst)
+                word = Long.reverseBytes(word); // The first byte becomes the lowest one
+            wordBits = WORD_BITS;
+            index += WORD_BYTES;
+        }
+        else {
+            word = 0;
+            wordBits = 0;
+            for (; index < end; index++, wordBits += BYTE_BITS)
+                word |= (buf.get(index) & BYTE_MASK) << (isMsbFirst ? WORD_BITS - BYTE_BITS - wordBits : wordBits);
+        }
+        return true;
+    }
+
+    // Number of dummy bits returned after the end of file
+    public int getGarbageBits() {
+        return garbageBits;
+    }
+
+    // Number of bytes of the packet none of whose bits are read yet
+    public int getUnreadBytes() {
+        return end - index + wordBits / BYTE_BITS;
+    }
+
+    public boolean isEnded() {
+        return buf == null || isExhausted;
+    }
+}
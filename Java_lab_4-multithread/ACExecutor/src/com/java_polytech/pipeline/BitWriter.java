@@ -0,0 +1,65 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.RC;
+
+// Writes bits into bytes starting from the least significant bit, as the stream format of ACExecutor requires,
+// or from the most significant one, as BlockCoder packs them.
+// The bits are collected in a 64-bit word that is passed on whole, and a run of equal bits is put at once
+class BitWriter {
+    static private final int WORD_BITS = 64;
+    static private final int BYTE_BITS = 8;
+    private final ByteSink sink;
+    private final byte[] bytes = new byte[WORD_BITS / BYTE_BITS];
+    private final boolean isMsbFirst;       // Whether the first bit of a byte is its most significant one
+    private long word = 0;                  // Collected bits, the first one is the lowest or the highest
+    private int wordBits = 0;               // Number of collected bits
+
+    BitWriter(ByteSink sink) {
+        this(sink, false);
+    }
+
+    BitWriter(ByteSink sink, boolean isMsbFirst) {
+        this.sink = sink;
+        this.isMsbFirst = isMsbFirst;
+    }
+
+    public RC writeBit(int bit) {
+        if (bit > 0)
+            word |= 1L << (isMsbFirst ? WORD_BITS - 1 - wordBits : wordBits);
+        if (++wordBits == WORD_BITS)
+            return flushWord(WORD_BITS / BYTE_BITS);
+        return RC.RC_SUCCESS;
+    }
+
+    // Writes 'count' copies of the bit
+    public RC writeRun(int bit, int count) {
+        while (count > 0) {
+            int part = Math.min(count, WORD_BITS - wordBits);
+            if (bit > 0)
+                word |= (-1L >>> (WORD_BITS - part)) << (isMsbFirst ? WORD_BITS - wordBits - part : wordBits);
+            wordBits += part;
+            count -= part;
+            if (wordBits == WORD_BITS) {
+                RC tmp = flushWord(WORD_BITS / BYTE_BITS);
+                if (!tmp.isSuccess())
+                    return tmp;
+            }
+        }
+        return RC.RC_SUCCESS;
+    }
+
+    // Writes out the collected bits, the last byte is padded with zeros
+    public RC flush() {
+        if (wordBits == 0)
+            return RC.RC_SUCCESS;
+        return flushWord((wordBits + BYTE_BITS - 1) / BYTE_BITS);
+    }
+
+    private RC flushWord(int length) {
+        for (int i = 0; i < length; i++)
+            bytes[i] = (byte)(word >>> (isMsbFirst ? WORD_BITS - BYTE_BITS - i * BYTE_BITS : i * BYTE_BITS));
+        word = 0;
+        wordBits = 0;
+        return sink.write(bytes, 0, length);
+    }
+}
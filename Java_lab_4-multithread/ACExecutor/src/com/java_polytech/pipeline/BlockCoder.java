@@ -0,0 +1,96 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.BufferPool;
+import com.java_polytech.pipeline_interfaces.RC;
+
+import java.nio.ByteBuffer;
+
+// Arithmetic coding of a whole block in memory. Unlike the stream coder of ACExecutor, the block is coded
+// without the stop symbol: its length is stored in the container. The bits are packed starting from the
+// most significant one. The coder shares the IntervalCoder and the frequency models with the stream coder.
+class BlockCoder {
+    static private final int BYTE_BITS = 8;
+
+    // Coded block: the array is leased from the pool, only the first 'length' bytes are used
+    static class Block {
+        final int originalLength;
+        final byte[] array;
+        final int length;
+
+        Block(int originalLength, byte[] array, int length) {
+            this.originalLength = originalLength;
+            this.array = array;
+            this.length = length;
+        }
+    }
+
+    // Growing output of the encoder
+    private static class Output implements ByteSink {
+        private byte[] array;
+        private int length = 0;
+
+        Output(int expectedSize) {
+            array = BufferPool.SHARED.lease(RC.RCWho.EXECUTOR, expectedSize);
+        }
+
+        @Override
+        public RC write(byte[] data, int offset, int count) {
+            if (length + count > array.length) {
+                byte[] grown = BufferPool.SHARED.lease(RC.RCWho.EXECUTOR, Math.max(array.length * 2, length + count));
+                System.arraycopy(array, 0, grown, 0, length);
+                BufferPool.SHARED.release(RC.RCWho.EXECUTOR, array);
+                array = grown;
+            }
+            System.arraycopy(data, offset, array, length, count);
+            length += count;
+            return RC.RC_SUCCESS;
+        }
+    }
+
+    // Encodes 'length' bytes of 'data' with a fresh model. The output only grows, so writing the bits never fails
+    static Block encode(IFrequencyModel model, byte[] data, int length) {
+        Output out = new Output(length / 2 + BYTE_BITS);
+        BitWriter bits = new BitWriter(out, true);
+        IntervalCoder.Encoder coder = new IntervalCoder.Encoder(model, bits);
+
+        for (int i = 0; i < length; i++) {
+            int symbol = model.byteToIndex(Byte.toUnsignedInt(data[i]));
+            coder.encode(symbol);
+            model.update(symbol);
+        }
+        coder.finish();
+        bits.flush();
+        return new Block(length, out.array, out.length);
+    }
+
+    // Decodes 'outLength' bytes with a fresh model. Returns false if the code is corrupted
+    static boolean decode(IFrequencyModel model, byte[] code, int codeLength, byte[] out, int outLength) {
+        BitReader reader = new BitReader(ByteBuffer.wrap(code, 0, codeLength), IntervalCoder.VALUE_BITS_NUM, true);
+        IntervalCoder.Decoder coder = new IntervalCoder.Decoder(model);
+        if (!isRead(coder.resume(reader), coder, reader))
+            return false;
+
+        for (int i = 0; i < outLength; i++) {
+            int symbol = coder.findSymbol();
+            if (symbol <= 0 || symbol >= IFrequencyModel.TABLE_SIZE
+                    || model.hasOwnEofIndex() && symbol == model.getEofIndex())
+                return false;
+            if (!isRead(coder.take(symbol, reader), coder, reader))
+                return false;
+            out[i] = (byte)model.indexToByte(symbol);
+            model.update(symbol);
+        }
+        // The code must not be longer than the bits the decoder has looked at
+        return reader.getUnreadBytes() == 0;
+    }
+
+    // Whether the step has read its bits. The code has no stop symbol, so the decoder runs past its end
+    // and goes on with the dummy bits after it
+    private static boolean isRead(int status, IntervalCoder.Decoder coder, BitReader reader) {
+        if (status == BitReader.EOF) {
+            reader.reset(null);
+            status = coder.resume(reader);
+        }
+        return status == IntervalCoder.Decoder.SUCCESS;
+    }
+}
@@ -0,0 +1,375 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.BufferPool;
+import com.java_polytech.pipeline_interfaces.RC;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+// Container of independently coded blocks. The blocks are coded on the fork-join pool and written in order.
+// Layout (numbers are big-endian):
+//   header: MAGIC, VERSION (1 byte), model (1 byte), block size (4 bytes)
+//   index entry of every block: original length (4 bytes), coded length (4 bytes), followed by the coded block
+//   end: an index entry with both lengths equal to zero
+// Every block is preceded by its index entry, so the decoder splits the stream into blocks as it arrives
+// and decodes them in parallel too.
+// Containers that follow each other are decoded as one stream, e.g. the containers of the independently coded
+// packets made by encodeSingle.
+class BlockContainer {
+    static final byte[] MAGIC = {'A', 'C', 'B', 'K'};
+    static private final int VERSION = 1;
+    static private final int HEADER_SIZE = 6;       // Size of the header after MAGIC
+    static private final int ENTRY_SIZE = 8;        // Size of an index entry
+    static private final int INT_SIZE = 4;
+    static private final int BYTE_SHIFT = 8;
+    static private final int BYTE_MASK = 0xff;
+
+    // The number of blocks that may be coded at the same time, it limits the memory used
+    static private int maxPending() {
+        return 2 * ForkJoinPool.getCommonPoolParallelism() + 1;
+    }
+
+    // The largest number of bytes the blocks being coded and their codes take
+    static long maxBufferedBytes(int blockSize) {
+        return 2L * maxPending() * blockSize;
+    }
+
+    static private RC error(String info) {
+        return new RC(RC.RCWho.EXECUTOR, RC.RCType.CODE_CUSTOM_ERROR, info);
+    }
+
+    static private void putInt(byte[] array, int offset, int value) {
+        for (int i = INT_SIZE - 1; i >= 0; i--, value >>>= BYTE_SHIFT)
+            array[offset + i] = (byte)value;
+    }
+
+    static private int getInt(byte[] array, int offset) {
+        int value = 0;
+        for (int i = 0; i < INT_SIZE; i++)
+            value = (value << BYTE_SHIFT) | (array[offset + i] & BYTE_MASK);
+        return value;
+    }
+
+    // Codes the packet as a container with a single block. The array of the result is leased from the pool
+    static ByteBuffer encodeSingle(ACExecutor.Model modelType, ByteBuffer bytes) {
+        int length = bytes.remaining();
+        byte[] data = BufferPool.SHARED.lease(RC.RCWho.EXECUTOR, length);
+        bytes.get(data, 0, length);
+        BlockCoder.Block coded;
+        try {
+            coded = BlockCoder.encode(modelType.create(), data, length);
+        } finally {
+            BufferPool.SHARED.release(RC.RCWho.EXECUTOR, data);
+        }
+
+        int size = MAGIC.length + HEADER_SIZE + ENTRY_SIZE + coded.length + ENTRY_SIZE;
+        byte[] out = BufferPool.SHARED.lease(RC.RCWho.EXECUTOR, size);
+        System.arraycopy(MAGIC, 0, out, 0, MAGIC.length);
+        int position = MAGIC.length;
+        out[position] = (byte)VERSION;
+        out[position + 1] = (byte)modelType.ordinal();
+        putInt(out, position + 2, length);
+        position += HEADER_SIZE;
+        putInt(out, position, length);
+        putInt(out, position + INT_SIZE, coded.length);
+        position += ENTRY_SIZE;
+        System.arraycopy(coded.array, 0, out, position, coded.length);
+        position += coded.length;
+        putInt(out, position, 0);
+        putInt(out, position + INT_SIZE, 0);
+        BufferPool.SHARED.release(RC.RCWho.EXECUTOR, coded.array);
+        return ByteBuffer.wrap(out, 0, size);
+    }
+
+    // Waits for the oldest block and takes it out of the queue
+    static private <T> T takeOldest(ArrayDeque<Future<T>> pending) throws ExecutionException {
+        Future<T> future = pending.poll();
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException(ex);
+        }
+    }
+
+    // Waits for the blocks that are still being coded and gives their results back to the pool.
+    // Only the started blocks are coded, the tasks check the flag of the coder and give back their input themselves
+    static private <T> void releaseAll(ArrayDeque<Future<T>> pending, Function<T, byte[]> array) {
+        boolean isInterrupted = false;
+        while (!pending.isEmpty()) {
+            Future<T> future = pending.peek();
+            try {
+                T result = future.get();
+                if (result != null)
+                    BufferPool.SHARED.release(RC.RCWho.EXECUTOR, array.apply(result));
+            } catch (InterruptedException ex) { // The task is waited for anyway, it holds arrays of the pool
+                isInterrupted = true;
+                continue;
+            } catch (ExecutionException ex) { // The task has failed and left no result
+            }
+            pending.poll();
+        }
+        if (isInterrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    static class Encoder {
+        private final ACExecutor.Model modelType;
+        private final int blockSize;
+        private final ByteSink sink;
+        private final ArrayDeque<Future<BlockCoder.Block>> pending = new ArrayDeque<>();
+        private byte[] block;                      // Block being filled
+        private int blockLength = 0;
+        private boolean isHeaderWritten = false;
+        private volatile boolean isCancelled = false;  // The blocks not started yet are not coded
+
+        Encoder(ACExecutor.Model modelType, int blockSize, ByteSink sink) {
+            this.modelType = modelType;
+            this.blockSize = blockSize;
+            this.sink = sink;
+        }
+
+        // Takes the next packet, null finishes the container
+        RC process(ByteBuffer bytes) {
+            if (!isHeaderWritten) {
+                byte[] header = new byte[MAGIC.length + HEADER_SIZE];
+                System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+                header[MAGIC.length] = (byte)VERSION;
+                header[MAGIC.length + 1] = (byte)modelType.ordinal();
+                putInt(header, MAGIC.length + 2, blockSize);
+                RC rc = sink.write(header, 0, header.length);
+                if (!rc.isSuccess())
+                    return rc;
+                isHeaderWritten = true;
+            }
+
+            if (bytes == null) {
+                if (blockLength > 0) {
+                    RC rc = submit();
+                    if (!rc.isSuccess())
+                        return rc;
+                }
+                while (!pending.isEmpty()) {
+                    RC rc = writeOldest();
+                    if (!rc.isSuccess())
+                        return rc;
+                }
+                byte[] end = new byte[ENTRY_SIZE];
+                return sink.write(end, 0, end.length);
+            }
+
+            while (bytes.hasRemaining()) {
+                if (block == null)
+                    block = BufferPool.SHARED.lease(RC.RCWho.EXECUTOR, blockSize);
+                int length = Math.min(blockSize - blockLength, bytes.remaining());
+                bytes.get(block, blockLength, length);
+                blockLength += length;
+                if (blockLength == blockSize) {
+                    RC rc = submit();
+                    if (!rc.isSuccess())
+                        return rc;
+                }
+            }
+            return RC.RC_SUCCESS;
+        }
+
+        private RC submit() {
+            final byte[] data = block;
+            final int length = blockLength;
+            block = null;
+            blockLength = 0;
+            pending.add(ForkJoinPool.commonPool().submit(() -> {
+                try {
+                    if (isCancelled)
+                        return null;
+                    return BlockCoder.encode(modelType.create(), data, length);
+                } finally {
+                    BufferPool.SHARED.release(RC.RCWho.EXECUTOR, data);
+                }
+            }));
+            if (pending.size() >= maxPending())
+                return writeOldest();
+            return RC.RC_SUCCESS;
+        }
+
+        private RC writeOldest() {
+            BlockCoder.Block coded;
+            try {
+                coded = takeOldest(pending);
+            } catch (ExecutionException ex) {
+                return error("Block encoding failed");
+            }
+            byte[] entry = new byte[ENTRY_SIZE];
+            putInt(entry, 0, coded.originalLength);
+            putInt(entry, INT_SIZE, coded.length);
+            RC rc = sink.write(entry, 0, entry.length);
+            if (rc.isSuccess())
+                rc = sink.write(coded.array, 0, coded.length);
+            BufferPool.SHARED.release(RC.RCWho.EXECUTOR, coded.array);
+            return rc;
+        }
+
+        // Stops the blocks that are still being coded
+        void cancel() {
+            isCancelled = true;
+            releaseAll(pending, coded -> coded.array);
+            BufferPool.SHARED.release(RC.RCWho.EXECUTOR, block);
+            block = null;
+        }
+    }
+
+    static class Decoder {
+        private enum State { HEADER, ENTRY, BLOCK, NEXT }  // NEXT is after the end, where another container may begin
+
+        private final ByteSink sink;
+        private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+        private final ArrayDeque<Integer> pendingLengths = new ArrayDeque<>();
+        private State state = State.HEADER;
+        private ACExecutor.Model modelType;
+        private int blockSize;
+        private int originalLength;                // Lengths from the last index entry
+        private int codedLength;
+        private byte[] stash = new byte[ENTRY_SIZE]; // Received bytes that are not parsed yet
+        private int stashLength = 0;
+        private volatile boolean isCancelled = false;  // The blocks not started yet are not decoded
+
+        // The container is recognized by MAGIC, the decoder is created after it
+        Decoder(ByteSink sink) {
+            this.sink = sink;
+        }
+
+        // Takes the next packet, null means the end of the input
+        RC process(ByteBuffer bytes) {
+            if (bytes == null) {
+                if (state != State.NEXT || stashLength > 0)
+                    return error("Incorrect input file: the container is cut off");
+                while (!pending.isEmpty()) {
+                    RC rc = writeOldest();
+                    if (!rc.isSuccess())
+                        return rc;
+                }
+                return RC.RC_SUCCESS;
+            }
+            if (stash.length - stashLength < bytes.remaining()) {
+                byte[] grown = new byte[Math.max(stash.length * 2, stashLength + bytes.remaining())];
+                System.arraycopy(stash, 0, grown, 0, stashLength);
+                stash = grown;
+            }
+            int length = bytes.remaining();
+            bytes.get(stash, stashLength, length);
+            stashLength += length;
+
+            int parsed = 0;
+            for (;;) {
+                if (state == State.HEADER) {
+                    if (stashLength - parsed < HEADER_SIZE)
+                        break;
+                    if (stash[parsed] != VERSION)
+                        return error("Incorrect input file: unknown container version");
+                    int model = stash[parsed + 1];
+                    if (model < 0 || model >= ACExecutor.Model.INCORRECT.ordinal())
+                        return error("Incorrect input file: unknown model");
+                    modelType = ACExecutor.Model.values()[model];
+                    blockSize = getInt(stash, parsed + 2);
+                    if (blockSize <= 0)
+                        return error("Incorrect input file: wrong block size");
+                    parsed += HEADER_SIZE;
+                    state = State.ENTRY;
+                }
+                else if (state == State.ENTRY) {
+                    if (stashLength - parsed < ENTRY_SIZE)
+                        break;
+                    originalLength = getInt(stash, parsed);
+                    codedLength = getInt(stash, parsed + INT_SIZE);
+                    parsed += ENTRY_SIZE;
+                    if (originalLength == 0 && codedLength == 0) {
+                        state = State.NEXT;
+                        continue;
+                    }
+                    // An arithmetic code never takes more than three bytes per symbol
+                    if (originalLength <= 0 || originalLength > blockSize
+                            || codedLength <= 0 || codedLength > 3L * originalLength + ENTRY_SIZE)
+                        return error("Incorrect input file: wrong block index");
+                    state = State.BLOCK;
+                }
+                else if (state == State.NEXT) {
+                    if (stashLength - parsed < MAGIC.length)
+                        break;
+                    for (int i = 0; i < MAGIC.length; i++)
+                        if (stash[parsed + i] != MAGIC[i])
+                            return error("Incorrect input file: data after the end of the container");
+                    parsed += MAGIC.length;
+                    state = State.HEADER;
+                }
+                else {
+                    if (stashLength - parsed < codedLength)
+                        break;
+                    RC rc = submit(stash, parsed);
+                    if (!rc.isSuccess())
+                        return rc;
+                    parsed += codedLength;
+                    state = State.ENTRY;
+                }
+            }
+            // Move the unparsed rest to the beginning
+            System.arraycopy(stash, parsed, stash, 0, stashLength - parsed);
+            stashLength -= parsed;
+            return RC.RC_SUCCESS;
+        }
+
+        private RC submit(byte[] source, int offset) {
+            final byte[] code = BufferPool.SHARED.lease(RC.RCWho.EXECUTOR, codedLength);
+            System.arraycopy(source, offset, code, 0, codedLength);
+            final int length = codedLength;
+            final int outLength = originalLength;
+            final ACExecutor.Model model = modelType;
+            pending.add(ForkJoinPool.commonPool().submit(() -> {
+                if (isCancelled) {
+                    BufferPool.SHARED.release(RC.RCWho.EXECUTOR, code);
+                    return null;
+                }
+                byte[] out = BufferPool.SHARED.lease(RC.RCWho.EXECUTOR, outLength);
+                boolean isDecoded;
+                try {
+                    isDecoded = BlockCoder.decode(model.create(), code, length, out, outLength);
+                } finally {
+                    BufferPool.SHARED.release(RC.RCWho.EXECUTOR, code);
+                }
+                if (isDecoded)
+                    return out;
+                BufferPool.SHARED.release(RC.RCWho.EXECUTOR, out);
+                return null;
+            }));
+            pendingLengths.add(outLength);
+            if (pending.size() >= maxPending())
+                return writeOldest();
+            return RC.RC_SUCCESS;
+        }
+
+        private RC writeOldest() {
+            int length = pendingLengths.poll();
+            byte[] out;
+            try {
+                out = takeOldest(pending);
+            } catch (ExecutionException ex) {
+                return error("Block decoding failed");
+            }
+            if (out == null)
+                return error("Incorrect input file: corrupted block");
+            RC rc = sink.write(out, 0, length);
+            BufferPool.SHARED.release(RC.RCWho.EXECUTOR, out);
+            return rc;
+        }
+
+        // Stops the blocks that are still being decoded
+        void cancel() {
+            isCancelled = true;
+            releaseAll(pending, out -> out);
+            pendingLengths.clear();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.RC;
+
+// Receives the bytes produced by a coder
+interface ByteSink {
+    RC write(byte[] data, int offset, int length);
+}
@@ -0,0 +1,205 @@
+package com.java_polytech.pipeline;
+
+import java.util.Arrays;
+
+// The frequency model that mixes the statistics of the previous bytes (the context) with the order-0 statistics.
+// Every order keeps a Fenwick tree per context in one flat array: order 0 has one context, order 1 has one per
+// previous byte and order 2 hashes the two previous bytes into HASH_SIZE contexts. The frequency of a symbol is
+// 1 + the sum of its counts in the current contexts multiplied by the weights of the orders, so no symbol is ever
+// impossible and no escape symbol is needed. The cumulative values of a sum of trees are the sums of their values,
+// so the search and the update take O(log n) as in the Fenwick model
+class ContextFrequencyModel implements IFrequencyModel {
+    static private final int NUM_OF_SYMBOLS = TABLE_SIZE - 1; // Symbols have indexes from 1 to NUM_OF_SYMBOLS
+    static private final int EOF_SYMBOL = NUM_OF_SYMBOLS;     // The stop symbol has its own index after all bytes
+    static private final int TOP_STEP = Integer.highestOneBit(NUM_OF_SYMBOLS); // The first step of the tree descent
+    static private final int BYTE_BITS = 8;
+    static private final int BYTE_MASK = 0xff;
+    static private final int HISTORY_MASK = 0xffff;           // The two previous bytes
+    static private final int HASH_BITS = 12;
+    static private final int HASH_SIZE = 1 << HASH_BITS;      // Number of the order-2 contexts
+    static private final int HASH_MULTIPLIER = 0x9E3779B1;
+    // Number of contexts and weight of each order. A higher order predicts better once it has seen the context,
+    // so its counts weigh more
+    static private final int[] CONTEXTS = {1, 1 << BYTE_BITS, HASH_SIZE};
+    static private final int[] WEIGHTS = {1, 16, 128};
+    // A context is scaled when its total count reaches this value. The sum of the limits multiplied by the weights
+    // stays below MAX_FREQUENCY
+    static private final int[] LIMITS = {1 << 16, 1 << 13, 1 << 12};
+    // The primed counts are shifted right by the value for the order of the model. The order-2 contexts start empty,
+    // so weaker lower orders let them take over sooner
+    static private final int[] PRIME_SHIFTS = {0, 0, 3};
+
+    private final int order;
+    private final int[][] trees;      // trees[k][context * TABLE_SIZE + i] is the Fenwick tree of the counts
+    private final int[][] totals;     // totals[k][context] is the total count of the context
+    private final int[] bases;        // Offset of the tree of the current context of each order
+    private final int[] contexts;     // The current context of each order
+    private int history = 0;          // The two previous bytes, the last one in the lowest bits
+    private long total;               // Total frequency in the current contexts
+
+    ContextFrequencyModel(int order) {
+        this.order = order;
+        trees = new int[order + 1][];
+        totals = new int[order + 1][];
+        for (int k = 0; k <= order; k++) {
+            trees[k] = new int[CONTEXTS[k] * TABLE_SIZE];
+            totals[k] = new int[CONTEXTS[k]];
+        }
+        bases = new int[order + 1];
+        contexts = new int[order + 1];
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        for (int k = 0; k <= order; k++) {
+            Arrays.fill(trees[k], 0);
+            Arrays.fill(totals[k], 0);
+        }
+        history = 0;
+        selectContexts();
+    }
+
+    // The order-0 and order-1 contexts start from the counts of the dictionary, the order-2 ones stay empty
+    @Override
+    public void prime(ModelDictionary dictionary) {
+        reset();
+        for (int k = 0; k <= Math.min(order, 1); k++) {
+            int[] counts = k == 0 ? dictionary.order0 : dictionary.order1;
+            for (int context = 0; context < CONTEXTS[k]; context++) {
+                int base = context * TABLE_SIZE;
+                int sum = 0;
+                for (int b = 0; b < ModelDictionary.NUM_OF_BYTES; b++) {
+                    int count = counts[context * ModelDictionary.NUM_OF_BYTES + b] >> PRIME_SHIFTS[order];
+                    trees[k][base + b + 1] = count;
+                    sum += count;
+                }
+                for (int i = 1; i <= NUM_OF_SYMBOLS; i++) {
+                    int parent = i + (i & -i);
+                    if (parent <= NUM_OF_SYMBOLS)
+                        trees[k][base + parent] += trees[k][base + i];
+                }
+                totals[k][context] = sum;
+            }
+        }
+        selectContexts();
+    }
+
+    // Finds the contexts of the current history and their total frequency
+    private void selectContexts() {
+        total = NUM_OF_SYMBOLS;
+        for (int k = 0; k <= order; k++) {
+            int context;
+            if (k == 0)
+                context = 0;
+            else if (k == 1)
+                context = history & BYTE_MASK;
+            else
+                context = (history * HASH_MULTIPLIER) >>> (Integer.SIZE - HASH_BITS);
+            contexts[k] = context;
+            bases[k] = context * TABLE_SIZE;
+            total += (long)WEIGHTS[k] * totals[k][context];
+        }
+    }
+
+    // Returns the frequency of the symbols with indexes from 1 to 'index'
+    private long prefixSum(int index) {
+        long sum = index;
+        for (int k = 0; k <= order; k++) {
+            int[] tree = trees[k];
+            int base = bases[k];
+            long part = 0;
+            for (int i = index; i > 0; i -= i & -i)
+                part += tree[base + i];
+            sum += WEIGHTS[k] * part;
+        }
+        return sum;
+    }
+
+    @Override
+    public int byteToIndex(int b) {
+        return b + 1;
+    }
+
+    @Override
+    public int indexToByte(int index) {
+        return index - 1;
+    }
+
+    @Override
+    public int getEofIndex() {
+        return EOF_SYMBOL;
+    }
+
+    @Override
+    public boolean hasOwnEofIndex() {
+        return true;
+    }
+
+    @Override
+    public int getTotalShift() {
+        return VARIABLE_TOTAL;
+    }
+
+    @Override
+    public long getCumulative(int index) {
+        return total - prefixSum(index);
+    }
+
+    @Override
+    public int findIndex(long cumul) {
+        // The required symbol is the first one whose prefix sum reaches 'rest'. A node of the sum of the trees
+        // is the sum of their nodes plus the node of the uniform part, which covers 'lowbit(node)' symbols
+        long rest = total - cumul;
+        int index = 0;
+        for (int step = TOP_STEP; step > 0; step >>= 1) {
+            int next = index + step;
+            if (next > NUM_OF_SYMBOLS)
+                continue;
+            long node = step;
+            for (int k = 0; k <= order; k++)
+                node += (long)WEIGHTS[k] * trees[k][bases[k] + next];
+            if (node < rest) {
+                index = next;
+                rest -= node;
+            }
+        }
+        return index + 1;
+    }
+
+    @Override
+    public void update(int index) {
+        for (int k = 0; k <= order; k++) {
+            int[] tree = trees[k];
+            int base = bases[k];
+            int context = contexts[k];
+            if (totals[k][context] == LIMITS[k])
+                scale(tree, base, k, context);
+            totals[k][context]++;
+            for (int i = index; i <= NUM_OF_SYMBOLS; i += i & -i)
+                tree[base + i]++;
+        }
+        history = ((history << BYTE_BITS) | ((index - 1) & BYTE_MASK)) & HISTORY_MASK;
+        selectContexts();
+    }
+
+    // Halves the counts of the context. The tree is turned back into the counts and built again in linear time
+    private void scale(int[] tree, int base, int k, int context) {
+        for (int i = NUM_OF_SYMBOLS; i > 0; i--) {
+            int parent = i + (i & -i);
+            if (parent <= NUM_OF_SYMBOLS)
+                tree[base + parent] -= tree[base + i];
+        }
+        int sum = 0;
+        for (int i = 1; i <= NUM_OF_SYMBOLS; i++) {
+            tree[base + i] >>= 1;
+            sum += tree[base + i];
+        }
+        for (int i = 1; i <= NUM_OF_SYMBOLS; i++) {
+            int parent = i + (i & -i);
+            if (parent <= NUM_OF_SYMBOLS)
+                tree[base + parent] += tree[base + i];
+        }
+        totals[k][context] = sum;
+    }
+}
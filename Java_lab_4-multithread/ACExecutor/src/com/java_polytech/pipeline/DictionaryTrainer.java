@@ -0,0 +1,55 @@
+package com.java_polytech.pipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+// Makes a dictionary for the DICTIONARY field of the executor config from a sample of the data.
+// Arguments: the dictionary file to write, then the sample files or directories (their files are read recursively).
+// The sample should look like the data that will be coded, e.g. a few hundred of the small files themselves.
+// Every file is counted from its start as the models see it: its first byte follows the byte 0
+public class DictionaryTrainer {
+    static private final int NUM_OF_BYTES = ModelDictionary.NUM_OF_BYTES;
+    static private final int BYTE_MASK = 0xff;
+
+    private final long[] order0 = new long[NUM_OF_BYTES];
+    private final long[] order1 = new long[NUM_OF_BYTES * NUM_OF_BYTES];
+    private int files = 0;
+    private long bytes = 0;
+
+    // Counts the bytes of the file or of all files of the directory
+    private void add(File file) throws IOException {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null)
+                for (File child : children)
+                    add(child);
+            return;
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+        int previous = 0;
+        for (byte b : data) {
+            int value = b & BYTE_MASK;
+            order0[value]++;
+            order1[previous * NUM_OF_BYTES + value]++;
+            previous = value;
+        }
+        files++;
+        bytes += data.length;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: DictionaryTrainer <dictionary> <sample file or directory>...");
+            return;
+        }
+        DictionaryTrainer trainer = new DictionaryTrainer();
+        for (int i = 1; i < args.length; i++)
+            trainer.add(new File(args[i]));
+
+        byte[] dictionary = ModelDictionary.fromCounts(trainer.order0, trainer.order1).toBytes();
+        Files.write(new File(args[0]).toPath(), dictionary);
+        System.out.println(trainer.files + " file(s), " + trainer.bytes + " bytes of the sample, the dictionary takes "
+                + dictionary.length + " bytes");
+    }
+}
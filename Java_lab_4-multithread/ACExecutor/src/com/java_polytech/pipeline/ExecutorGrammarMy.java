@@ -7,17 +7,33 @@ public class ExecutorGrammarMy implements MyIGrammar {
     // The enum containing the executor's grammar fields
     public enum ConfigParams {
         OUT_BUFFER_SIZE("OUT_BUFFER_SIZE"),
-        MODE("MODE");
+        MODE("MODE"),
+        MODEL("MODEL", true),
+        BLOCK_SIZE("BLOCK_SIZE", true),
+        ENGINE("ENGINE", true),
+        DICTIONARY("DICTIONARY", true),
+        CREDIT_BYTES("CREDIT_BYTES", true),
+        INDEPENDENT_PACKETS("INDEPENDENT_PACKETS", true);
 
         private final String parameter;
+        private final boolean optional;  // Whether the field may be omitted in the config file
 
         ConfigParams(String param) {
+            this(param, false);
+        }
+
+        ConfigParams(String param, boolean isOptional) {
             parameter = param;
+            optional = isOptional;
         }
 
         public String asString() {
             return parameter;
         }
+
+        public boolean isOptional() {
+            return optional;
+        }
     }
 
     static private final String DELIMITER = "\\s*=\\s*"; // Delimiter between the field name and value
@@ -45,4 +61,21 @@ public class ExecutorGrammarMy implements MyIGrammar {
     public int numberOfFields() {
         return ConfigParams.values().length;
     }
+
+    @Override
+    public boolean isOptionalKey(String str) {
+        for (ConfigParams fieldName : ConfigParams.values())
+            if (str.equals(fieldName.asString()))
+                return fieldName.isOptional();
+        return false;
+    }
+
+    @Override
+    public int numberOfOptionalFields() {
+        int count = 0;
+        for (ConfigParams fieldName : ConfigParams.values())
+            if (fieldName.isOptional())
+                count++;
+        return count;
+    }
 }
\ No newline at end of file
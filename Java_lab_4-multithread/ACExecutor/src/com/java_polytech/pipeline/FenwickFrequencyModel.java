@@ -0,0 +1,111 @@
+package com.java_polytech.pipeline;
+
+// The frequency model based on a binary indexed (Fenwick) tree
+// Bytes keep their indexes, update and symbol search take O(log n) regardless of the data distribution
+class FenwickFrequencyModel implements IFrequencyModel {
+    static private final int NUM_OF_SYMBOLS = TABLE_SIZE - 1; // Symbols have indexes from 1 to NUM_OF_SYMBOLS
+    static private final int EOF_SYMBOL = NUM_OF_SYMBOLS;     // The stop symbol has its own index after all bytes
+    static private final int TOP_STEP = Integer.highestOneBit(NUM_OF_SYMBOLS); // The first step of the tree descent
+    private final long[] frequency = new long[TABLE_SIZE];   // Number of each character
+    private final long[] tree = new long[TABLE_SIZE];        // tree[i] is the sum of frequencies in (i - lowbit(i), i]
+    private long total;                                       // Total frequency of all characters
+
+    FenwickFrequencyModel() {
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        for (int index = 1; index <= NUM_OF_SYMBOLS; index++)
+            frequency[index] = 1;
+        build();
+    }
+
+    @Override
+    public void prime(ModelDictionary dictionary) {
+        for (int b = 0; b < ModelDictionary.NUM_OF_BYTES; b++)
+            frequency[b + 1] = 1 + dictionary.order0[b];
+        frequency[EOF_SYMBOL] = 1;
+        build();
+    }
+
+    // Rebuilds the tree from the frequencies in linear time
+    private void build() {
+        total = 0;
+        for (int index = 1; index <= NUM_OF_SYMBOLS; index++) {
+            tree[index] = frequency[index];
+            total += frequency[index];
+        }
+        for (int index = 1; index <= NUM_OF_SYMBOLS; index++) {
+            int parent = index + (index & -index);
+            if (parent <= NUM_OF_SYMBOLS)
+                tree[parent] += tree[index];
+        }
+    }
+
+    // Returns the total frequency of the symbols with indexes from 1 to 'index'
+    private long prefixSum(int index) {
+        long sum = 0;
+        for (; index > 0; index -= index & -index)
+            sum += tree[index];
+        return sum;
+    }
+
+    @Override
+    public int byteToIndex(int b) {
+        return b + 1;
+    }
+
+    @Override
+    public int indexToByte(int index) {
+        return index - 1;
+    }
+
+    @Override
+    public int getEofIndex() {
+        return EOF_SYMBOL;
+    }
+
+    @Override
+    public boolean hasOwnEofIndex() {
+        return true;
+    }
+
+    @Override
+    public int getTotalShift() {
+        return VARIABLE_TOTAL;
+    }
+
+    @Override
+    public long getCumulative(int index) {
+        return total - prefixSum(index);
+    }
+
+    @Override
+    public int findIndex(long cumul) {
+        // The required symbol is the first one whose prefix sum reaches 'rest'
+        long rest = total - cumul;
+        int index = 0;
+        for (int step = TOP_STEP; step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= NUM_OF_SYMBOLS && tree[next] < rest) {
+                index = next;
+                rest -= tree[next];
+            }
+        }
+        return index + 1;
+    }
+
+    @Override
+    public void update(int index) {
+        if (total == MAX_FREQUENCY) { // Scale values
+            for (int i = 1; i <= NUM_OF_SYMBOLS; i++)
+                frequency[i] = (frequency[i] + 1) / 2;
+            build();
+        }
+        frequency[index]++;
+        total++;
+        for (; index <= NUM_OF_SYMBOLS; index += index & -index)
+            tree[index]++;
+    }
+}
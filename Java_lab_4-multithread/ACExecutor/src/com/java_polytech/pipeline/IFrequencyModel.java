@@ -0,0 +1,44 @@
+package com.java_polytech.pipeline;
+
+// Adaptive frequency model used by the arithmetic coder
+// Symbols are indexes from 1 to TABLE_SIZE - 1. getCumulative(index) is the total frequency of all symbols with
+// a greater index, so the symbol occupies the interval [getCumulative(index), getCumulative(index - 1))
+// and getCumulative(0) is the total frequency of the model
+interface IFrequencyModel {
+    int TABLE_SIZE = 258;                          // Size of auxiliary buffers
+    // When the total frequency reaches this value, the model is scaled. It must not exceed a quarter of the coder range,
+    // otherwise the interval of a rare symbol may become empty and the decoder loses synchronization
+    long MAX_FREQUENCY = 0x00000000003fffffL;
+    int VARIABLE_TOTAL = -1;                       // getTotalShift of a model whose total is not a power of two
+
+    // Fills the model with default values
+    void reset();
+
+    // Fills the model with the statistics of the dictionary instead of the default values
+    void prime(ModelDictionary dictionary);
+
+    // Returns the index under which the byte is currently coded
+    int byteToIndex(int b);
+
+    // Returns the byte coded under the index
+    int indexToByte(int index);
+
+    // Returns the index of the stop symbol (Indicates the end of the encoded sequence)
+    int getEofIndex();
+
+    // Returns true if the stop symbol never codes a real byte, so it ends the stream wherever it is decoded
+    boolean hasOwnEofIndex();
+
+    // Returns n if the total frequency is always 2^n, so the coders may shift instead of dividing,
+    // otherwise VARIABLE_TOTAL
+    int getTotalShift();
+
+    // Returns the total frequency of all symbols with an index greater than the specified one
+    long getCumulative(int index);
+
+    // Returns the index of the symbol whose interval contains the value 'cumul'
+    int findIndex(long cumul);
+
+    // Takes into account one more occurrence of the symbol
+    void update(int index);
+}
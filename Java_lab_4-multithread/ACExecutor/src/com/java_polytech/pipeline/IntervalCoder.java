@@ -0,0 +1,191 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.RC;
+
+// The 24-bit arithmetic coder shared by the stream coder of ACExecutor and by BlockCoder: the interval is narrowed
+// to the symbols of a frequency model and scaled back up bit by bit. The bits go to a BitWriter and come from
+// a BitReader, so the callers only choose the bit order and what to do at the end of the code
+class IntervalCoder {
+    static final long MAX_VALUE = 0x0000000000ffffffL; // The maximum value of the parameter during processing
+    static final long FIRST_QTR = MAX_VALUE / 4 + 1;   // A milestone for scaling
+    static final long HALF = 2 * FIRST_QTR;            // A milestone for scaling
+    static final long THIRD_QTR = 3 * FIRST_QTR;       // A milestone for scaling
+    static final int VALUE_BITS_NUM = 24;              // The number of bits in the maximum value
+
+    protected final IFrequencyModel model;     // The caller updates the model after every symbol
+    protected final int totalShift;            // log2 of the total frequency if it is a power of two
+    protected long low = 0;                    // Lower border
+    protected long high = MAX_VALUE;           // Upper bound
+
+    IntervalCoder(IFrequencyModel model) {
+        this.model = model;
+        totalShift = model.getTotalShift();
+    }
+
+    // Narrows the interval to the symbol
+    protected void narrow(int symbol) {
+        long range = high - low + 1;   // Size of the current code region
+        if (totalShift != IFrequencyModel.VARIABLE_TOTAL) { // The same as dividing by the total
+            high = low + ((range * model.getCumulative(symbol - 1)) >> totalShift) - 1;
+            low = low + ((range * model.getCumulative(symbol)) >> totalShift);
+        }
+        else {
+            long total = model.getCumulative(0);
+            high = low + (range * model.getCumulative(symbol - 1)) / total - 1;
+            low = low + (range * model.getCumulative(symbol)) / total;
+        }
+    }
+
+    static class Encoder extends IntervalCoder {
+        private final BitWriter bits;
+        private int bitsToFollow = 0;          // Number of additional bits
+
+        Encoder(IFrequencyModel model, BitWriter bits) {
+            super(model);
+            this.bits = bits;
+        }
+
+        private RC bitPlusFollow(int bit) {
+            RC tmp = bits.writeBit(bit); // Write the specified bit
+            if(!tmp.isSuccess())
+                return tmp;
+
+            // Process additional bits
+            tmp = bits.writeRun(1 - bit, bitsToFollow);
+            bitsToFollow = 0;
+            return tmp;
+        }
+
+        RC encode(int symbol) {
+            narrow(symbol);
+
+            RC tmp;
+            for (;;) {
+                if (high < HALF) {
+                    tmp = bitPlusFollow(0);    // Output 0 if in low half
+                    if(!tmp.isSuccess())
+                        return tmp;
+                }
+                else if (low >= HALF) {
+                    tmp = bitPlusFollow(1);    // Output 1 if in high half
+                    if(!tmp.isSuccess())
+                        return tmp;
+                    low -= HALF;
+                    high -= HALF;          // Subtract offset to top
+                }
+                else if (low >= FIRST_QTR && high < THIRD_QTR) { // Output an opposite bit later if in middle half
+                    bitsToFollow += 1;
+                    low -= FIRST_QTR;      // Subtract offset to middle
+                    high -= FIRST_QTR;
+                }
+                else break;                // Otherwise exit loop
+                low = 2 * low;
+                high = 2 * high + 1;       // Scale up code range
+            }
+            return RC.RC_SUCCESS;
+        }
+
+        // Two bits select a quarter inside the final interval, so the bits after them may be anything.
+        // The caller flushes the BitWriter
+        RC finish() {
+            bitsToFollow++;
+            return bitPlusFollow(low < FIRST_QTR ? 0 : 1);
+        }
+    }
+
+    // Every step returns SUCCESS, BitReader.EOF or the negated number of dummy bits if there are too many of them.
+    // After EOF the decoder goes on with the next bits through resume
+    static class Decoder extends IntervalCoder {
+        static final int SUCCESS = 0;          // Success code
+        private long currentValue = 0;         // The current value of the parameter
+        private int valueBitsFilled = 0;       // Number of filled parameter bits
+        private boolean correctValue = true;   // Indication of the relevance of the parameter
+
+        Decoder(IFrequencyModel model) {
+            super(model);
+        }
+
+        // Finishes the step that has run out of bits: the initial filling of the parameter or the scaling
+        int resume(BitReader reader) {
+            if (valueBitsFilled != VALUE_BITS_NUM) {
+                for (; valueBitsFilled < VALUE_BITS_NUM; ++valueBitsFilled) {
+                    int bit = reader.readBit();
+                    if (bit == BitReader.EOF)
+                        return BitReader.EOF;
+                    if (bit > 1)
+                        return -bit;
+
+                    currentValue = 2 * currentValue + bit;
+                }
+                return SUCCESS;
+            }
+            if (correctValue)
+                return SUCCESS;
+            return makeActual(reader);
+        }
+
+        // The symbol that the parameter points at, the model may return an invalid one for a corrupted code
+        int findSymbol() {
+            long range = high - low + 1;   // Size of the current code region
+            long cumul;
+            if (totalShift != IFrequencyModel.VARIABLE_TOTAL) // Only the division by the range is left
+                cumul = (((currentValue - low + 1) << totalShift) - 1) / range;
+            else
+                cumul = ((currentValue - low + 1) * model.getCumulative(0) - 1) / range;
+            return model.findIndex(cumul);
+        }
+
+        // Narrows the interval to the symbol found and reads the bits it has freed
+        int take(int symbol, BitReader reader) {
+            narrow(symbol);
+            return makeActual(reader);
+        }
+
+        private int makeActual(BitReader reader){
+            if(!correctValue){ // Restore the value in such a way as to simulate a return to the place where the loop was interrupted
+                int bit;
+                bit = reader.readBit();
+                if (bit == BitReader.EOF) {
+                    return BitReader.EOF;
+                }
+                if(bit > 1)
+                    return -bit;
+
+                currentValue = 2 * currentValue + bit;
+            }
+            for (;;) {
+                if (high < HALF) {
+                    // Nothing
+                }
+                else if (low >= HALF) {    // Expand high half
+                    currentValue -= HALF;
+                    low -= HALF;
+                    high -= HALF;          // Subtract offset to top
+                }
+                else if (low >= FIRST_QTR && high < THIRD_QTR) { // Expand middle half
+                    currentValue -= FIRST_QTR;
+                    low -= FIRST_QTR;      // Subtract offset to middle
+                    high -= FIRST_QTR;
+                }
+                else {
+                    correctValue = true;
+                    break;                // Otherwise exit loop
+                }
+                low = 2 * low;
+                high = 2 * high + 1;       // Scale up code range
+
+                int bit;
+                bit = reader.readBit();
+                if (bit == BitReader.EOF) { // Interrupting the loop because the buffer has run out
+                    correctValue = false;
+                    return BitReader.EOF;
+                }
+                if(bit > 1) // Too many dummy bits
+                    return -bit;
+
+                currentValue = 2 * currentValue + bit;
+            }
+            return SUCCESS;
+        }
+    }
+}
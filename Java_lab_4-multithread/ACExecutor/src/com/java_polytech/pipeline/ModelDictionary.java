@@ -0,0 +1,185 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.RC;
+
+import javafx.util.Pair;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+// Pre-trained statistics the frequency models start from instead of the uniform ones, so that a small input is coded
+// well from its first byte. The dictionary keeps the order-0 counts of the bytes and the order-1 counts of every byte
+// after every previous byte, both are scaled down to ORDER0_TOTAL and ORDER1_TOTAL per context, so the models keep
+// adapting to the input quickly. It is made by DictionaryTrainer from a sample of the data.
+// File layout: FILE_MAGIC, VERSION (1 byte), the order-0 table, then the order-1 table of each previous byte from 0
+// to 255. A table is a bitmap of the bytes with a non-zero count (32 bytes, the lowest bit of the first byte is
+// byte 0) followed by the counts of these bytes as varints (7 bits per byte, the highest bit means that more bytes
+// follow).
+// The code made with a dictionary starts with TAG and the id of the dictionary (ID_SIZE bytes, the CRC32 of its
+// file), so the decoder checks that it has the same dictionary
+class ModelDictionary {
+    static final byte[] TAG = {'A', 'C', 'D', 'I'};
+    static final int ID_SIZE = 4;
+    static private final byte[] FILE_MAGIC = {'A', 'C', 'D', 'F'};
+    static private final int VERSION = 1;
+    static final int NUM_OF_BYTES = 256;
+    static final int ORDER0_TOTAL = 1 << 12;  // The largest total of the order-0 counts
+    static final int ORDER1_TOTAL = 1 << 10;   // The largest total of the counts of an order-1 context
+    static private final int BYTE_BITS = 8;
+    static private final int BYTE_MASK = 0xff;
+    static private final int BITMAP_SIZE = NUM_OF_BYTES / BYTE_BITS;
+    static private final int VARINT_BITS = 7;
+    static private final int VARINT_MASK = (1 << VARINT_BITS) - 1;
+    static private final int VARINT_MORE = 1 << VARINT_BITS;
+    static private final int MAX_VARINT_SIZE = 3;
+    // The loaded dictionaries by their paths, so that the files of a batch do not read the dictionary again
+    static private final ConcurrentHashMap<String, ModelDictionary> CACHE = new ConcurrentHashMap<>();
+
+    final int[] order0 = new int[NUM_OF_BYTES];                // order0[b] is the count of the byte b
+    final int[] order1 = new int[NUM_OF_BYTES * NUM_OF_BYTES]; // order1[p * NUM_OF_BYTES + b] counts b after p
+    private final byte[] id = new byte[ID_SIZE];
+    private long modified;                                     // Time of the last change of the file it was read from
+    private long size;                                         // Size of that file
+
+    private ModelDictionary() {
+    }
+
+    // Makes the dictionary from the counts of a sample, the counts are scaled down to the totals
+    static ModelDictionary fromCounts(long[] order0Counts, long[] order1Counts) {
+        ModelDictionary dictionary = new ModelDictionary();
+        scale(order0Counts, 0, dictionary.order0, 0, ORDER0_TOTAL);
+        for (int p = 0; p < NUM_OF_BYTES; p++)
+            scale(order1Counts, p * NUM_OF_BYTES, dictionary.order1, p * NUM_OF_BYTES, ORDER1_TOTAL);
+        dictionary.makeId(dictionary.toBytes());
+        return dictionary;
+    }
+
+    // Copies NUM_OF_BYTES counts so that their sum does not exceed 'limit'
+    static private void scale(long[] from, int fromOffset, int[] to, int toOffset, int limit) {
+        long sum = 0;
+        for (int b = 0; b < NUM_OF_BYTES; b++)
+            sum += from[fromOffset + b];
+        for (int b = 0; b < NUM_OF_BYTES; b++)
+            to[toOffset + b] = (int)(sum <= limit ? from[fromOffset + b] : from[fromOffset + b] * limit / sum);
+    }
+
+    private void makeId(byte[] file) {
+        CRC32 crc = new CRC32();
+        crc.update(file, 0, file.length);
+        long value = crc.getValue();
+        for (int i = 0; i < ID_SIZE; i++)
+            id[i] = (byte)(value >>> (BYTE_BITS * (ID_SIZE - 1 - i)));
+    }
+
+    // Returns the id written after TAG
+    byte[] getId() {
+        return id.clone();
+    }
+
+    boolean hasId(byte[] other) {
+        for (int i = 0; i < ID_SIZE; i++)
+            if (id[i] != other[i])
+                return false;
+        return true;
+    }
+
+    // Returns the content of the dictionary file
+    byte[] toBytes() {
+        byte[] out = new byte[FILE_MAGIC.length + 1
+                + (NUM_OF_BYTES + 1) * (BITMAP_SIZE + NUM_OF_BYTES * MAX_VARINT_SIZE)];
+        System.arraycopy(FILE_MAGIC, 0, out, 0, FILE_MAGIC.length);
+        int position = FILE_MAGIC.length;
+        out[position++] = (byte)VERSION;
+        position = writeTable(order0, 0, out, position);
+        for (int p = 0; p < NUM_OF_BYTES; p++)
+            position = writeTable(order1, p * NUM_OF_BYTES, out, position);
+        byte[] file = new byte[position];
+        System.arraycopy(out, 0, file, 0, position);
+        return file;
+    }
+
+    // Writes NUM_OF_BYTES counts and returns the position after them
+    static private int writeTable(int[] counts, int offset, byte[] out, int position) {
+        int bitmap = position;
+        position += BITMAP_SIZE;
+        for (int b = 0; b < NUM_OF_BYTES; b++) {
+            int value = counts[offset + b];
+            if (value == 0)
+                continue;
+            out[bitmap + b / BYTE_BITS] |= (byte)(1 << (b % BYTE_BITS));
+            while (value >= VARINT_MORE) {
+                out[position++] = (byte)(value & VARINT_MASK | VARINT_MORE);
+                value >>>= VARINT_BITS;
+            }
+            out[position++] = (byte)value;
+        }
+        return position;
+    }
+
+    // Reads NUM_OF_BYTES counts whose sum must not exceed 'limit'. Returns the position after them or -1 if the bytes
+    // are not a table
+    static private int readTable(byte[] in, int position, int[] counts, int offset, int limit) {
+        if (in.length - position < BITMAP_SIZE)
+            return -1;
+        int bitmap = position;
+        position += BITMAP_SIZE;
+        long sum = 0;
+        for (int b = 0; b < NUM_OF_BYTES; b++) {
+            if ((in[bitmap + b / BYTE_BITS] & (1 << (b % BYTE_BITS))) == 0)
+                continue;
+            int value = 0;
+            for (int shift = 0; ; shift += VARINT_BITS) {
+                if (position == in.length || shift >= MAX_VARINT_SIZE * VARINT_BITS)
+                    return -1;
+                int next = in[position++] & BYTE_MASK;
+                value |= (next & VARINT_MASK) << shift;
+                if ((next & VARINT_MORE) == 0)
+                    break;
+            }
+            counts[offset + b] = value;
+            sum += value;
+        }
+        return sum <= limit ? position : -1;
+    }
+
+    static private RC error(String info) {
+        return new RC(RC.RCWho.EXECUTOR, RC.RCType.CODE_CONFIG_SEMANTIC_ERROR, info);
+    }
+
+    // Reads the dictionary file. A file that has not changed since it was read last time is not read again
+    static Pair<RC, ModelDictionary> load(String path) {
+        File file = new File(path).getAbsoluteFile();
+        ModelDictionary cached = CACHE.get(file.getPath());
+        if (cached != null && cached.modified == file.lastModified() && cached.size == file.length())
+            return new Pair<>(RC.RC_SUCCESS, cached);
+
+        ModelDictionary dictionary = new ModelDictionary();
+        dictionary.modified = file.lastModified();
+        dictionary.size = file.length();
+        byte[] in;
+        try {
+            in = Files.readAllBytes(file.toPath());
+        } catch (IOException ex) {
+            return new Pair<>(error("Cannot read the dictionary " + path), null);
+        }
+
+        int position = FILE_MAGIC.length + 1;
+        boolean isCorrect = in.length >= position;
+        for (int i = 0; i < FILE_MAGIC.length && isCorrect; i++)
+            isCorrect = in[i] == FILE_MAGIC[i];
+        if (isCorrect && in[FILE_MAGIC.length] != VERSION)
+            return new Pair<>(error("Unknown version of the dictionary " + path), null);
+        if (isCorrect)
+            position = readTable(in, position, dictionary.order0, 0, ORDER0_TOTAL);
+        for (int p = 0; p < NUM_OF_BYTES && isCorrect && position >= 0; p++)
+            position = readTable(in, position, dictionary.order1, p * NUM_OF_BYTES, ORDER1_TOTAL);
+        if (!isCorrect || position != in.length)
+            return new Pair<>(error("The file " + path + " is not a dictionary"), null);
+
+        dictionary.makeId(in);
+        CACHE.put(file.getPath(), dictionary);
+        return new Pair<>(RC.RC_SUCCESS, dictionary);
+    }
+}
@@ -0,0 +1,126 @@
+package com.java_polytech.pipeline;
+
+// The frequency model whose total frequency is always 2^TOTAL_BITS, so the coders divide by it with a shift.
+// The adaptive counts are kept apart from the frequencies used for coding. Every 'period' symbols the counts are
+// renormalized into the coding frequencies: each symbol gets at least 1 and the rest is shared in proportion to
+// the counts, the rounding remainder goes to the most frequent symbol. The period starts small, so the model
+// learns quickly at the beginning, and grows up to MAX_PERIOD. Between the renormalizations the frequencies do not
+// change, so getCumulative reads an array, update only counts and the symbol is found by a binary search.
+// The price is a little ratio: the model sees the new statistics up to MAX_PERIOD symbols late
+class PowerOfTwoFrequencyModel implements IFrequencyModel {
+    static private final int NUM_OF_SYMBOLS = TABLE_SIZE - 1; // Symbols have indexes from 1 to NUM_OF_SYMBOLS
+    static private final int EOF_SYMBOL = NUM_OF_SYMBOLS;     // The stop symbol has its own index after all bytes
+    static private final int TOTAL_BITS = 16;
+    static private final int TOTAL = 1 << TOTAL_BITS;
+    static private final int MIN_PERIOD = 32;
+    static private final int MAX_PERIOD = 1024;
+    static private final int COUNT_LIMIT = 1 << 16;           // The counts are halved when their total reaches it
+    private final int[] counts = new int[TABLE_SIZE];         // Number of each character
+    private final long[] cumulative = new long[TABLE_SIZE];   // The cumulative coding frequencies
+    private int countTotal;                                   // Total of the counts
+    private int period;                                       // Symbols between the renormalizations
+    private int untilRenormalization;                         // Symbols left until the next renormalization
+
+    PowerOfTwoFrequencyModel() {
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        for (int index = 1; index <= NUM_OF_SYMBOLS; index++)
+            counts[index] = 1;
+        countTotal = NUM_OF_SYMBOLS;
+        period = MIN_PERIOD;
+        renormalize();
+    }
+
+    @Override
+    public void prime(ModelDictionary dictionary) {
+        countTotal = 0;
+        for (int index = 1; index <= NUM_OF_SYMBOLS; index++) {
+            counts[index] = index == EOF_SYMBOL ? 1 : 1 + dictionary.order0[index - 1];
+            countTotal += counts[index];
+        }
+        period = MIN_PERIOD;
+        renormalize();
+    }
+
+    // Turns the counts into the coding frequencies with the total TOTAL
+    private void renormalize() {
+        long share = TOTAL - NUM_OF_SYMBOLS; // Every symbol gets 1 beyond its share
+        int top = 1;
+        cumulative[NUM_OF_SYMBOLS] = 0;
+        for (int index = NUM_OF_SYMBOLS; index > 0; index--) {
+            long value = 1 + counts[index] * share / countTotal;
+            cumulative[index - 1] = cumulative[index] + value;
+            if (counts[index] > counts[top])
+                top = index;
+        }
+        // Give the rounding remainder to the most frequent symbol
+        long remainder = TOTAL - cumulative[0];
+        for (int index = top - 1; index >= 0; index--)
+            cumulative[index] += remainder;
+        untilRenormalization = period;
+        period = Math.min(MAX_PERIOD, 2 * period);
+    }
+
+    @Override
+    public int byteToIndex(int b) {
+        return b + 1;
+    }
+
+    @Override
+    public int indexToByte(int index) {
+        return index - 1;
+    }
+
+    @Override
+    public int getEofIndex() {
+        return EOF_SYMBOL;
+    }
+
+    @Override
+    public boolean hasOwnEofIndex() {
+        return true;
+    }
+
+    @Override
+    public int getTotalShift() {
+        return TOTAL_BITS;
+    }
+
+    @Override
+    public long getCumulative(int index) {
+        return cumulative[index];
+    }
+
+    @Override
+    public int findIndex(long cumul) {
+        // The required symbol is the first one whose cumulative frequency does not exceed 'cumul'
+        int low = 1;
+        int high = NUM_OF_SYMBOLS;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] > cumul)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    @Override
+    public void update(int index) {
+        if (countTotal == COUNT_LIMIT) { // Scale values
+            countTotal = 0;
+            for (int i = 1; i <= NUM_OF_SYMBOLS; i++) {
+                counts[i] = (counts[i] + 1) / 2;
+                countTotal += counts[i];
+            }
+        }
+        counts[index]++;
+        countTotal++;
+        if (--untilRenormalization == 0)
+            renormalize();
+    }
+}
@@ -0,0 +1,316 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.RC;
+
+import java.nio.ByteBuffer;
+
+// Byte-oriented range coder without carry propagation (D. Subbotin's scheme) with the same frequency models as the
+// arithmetic coder. The range is renormalized by whole bytes, so a symbol takes a few byte steps instead of a bit loop.
+// Layout: MAGIC, VERSION (1 byte), model (1 byte), the code. The code ends with the stop symbol and CODE_BYTES bytes
+// of the final low border. The decoder reads exactly as many bytes as the encoder writes, so it knows where the code
+// ends. If the model codes the stop symbol by the index of a byte, every such index is followed by a flag of
+// probability 1/2 that tells the stop from the byte: the length of the rest of the input can not tell them, as the
+// stop symbol may move no bytes at all.
+class RangeCoder {
+    static final byte[] MAGIC = {'A', 'C', 'R', 'C'};
+    static private final int VERSION = 1;
+    static private final int HEADER_SIZE = 2;                 // Size of the header after MAGIC
+    static private final int CODE_BYTES = 7;                  // The borders are 56-bit numbers
+    static private final int BYTE_SHIFT = 8;
+    static private final int BYTE_MASK = 0xff;
+    static private final int TOP_SHIFT = (CODE_BYTES - 1) * BYTE_SHIFT; // The highest byte of the borders
+    static private final long MASK = (1L << (CODE_BYTES * BYTE_SHIFT)) - 1;
+    // The smallest range after renormalization. It is far greater than MAX_FREQUENCY, so dividing the range
+    // by the total frequency loses almost nothing
+    static private final long BOT = 1L << (TOP_SHIFT - BYTE_SHIFT);
+    // A symbol and its stop flag never move more bytes than the borders have twice, the decoder waits for more input
+    // before every symbol
+    static private final int MAX_SYMBOL_BYTES = 2 * CODE_BYTES;
+    static private final int OUT_SIZE = 4096;                 // Size of the local output buffer
+
+    static private RC error(String info) {
+        return new RC(RC.RCWho.EXECUTOR, RC.RCType.CODE_CUSTOM_ERROR, info);
+    }
+
+    static class Encoder {
+        private final ACExecutor.Model modelType;
+        private final IFrequencyModel model;
+        private final int totalShift;
+        private final ByteSink sink;
+        private final byte[] out = new byte[OUT_SIZE];
+        private int outLength = 0;
+        private long low = 0;
+        private long range = MASK;
+        private boolean isHeaderWritten = false;
+
+        Encoder(ACExecutor.Model modelType, ByteSink sink) {
+            this(modelType, null, sink);
+        }
+
+        // The model starts from the statistics of the dictionary if it is not null
+        Encoder(ACExecutor.Model modelType, ModelDictionary dictionary, ByteSink sink) {
+            this.modelType = modelType;
+            this.model = modelType.create(dictionary);
+            this.totalShift = model.getTotalShift();
+            this.sink = sink;
+        }
+
+        // Codes with the given model and writes no header, the caller writes its own
+        Encoder(IFrequencyModel model, ByteSink sink) {
+            this.modelType = null;
+            this.model = model;
+            this.totalShift = model.getTotalShift();
+            this.sink = sink;
+            this.isHeaderWritten = true;
+        }
+
+        // Takes the next packet, null finishes the code
+        RC process(ByteBuffer bytes) {
+            if (!isHeaderWritten) {
+                System.arraycopy(MAGIC, 0, out, 0, MAGIC.length);
+                out[MAGIC.length] = (byte)VERSION;
+                out[MAGIC.length + 1] = (byte)modelType.ordinal();
+                outLength = MAGIC.length + HEADER_SIZE;
+                isHeaderWritten = true;
+            }
+
+            if (bytes == null) {
+                RC rc = encode(model.getEofIndex());
+                if (rc.isSuccess() && !model.hasOwnEofIndex())
+                    rc = encodeStop(true);
+                for (int i = 0; i < CODE_BYTES && rc.isSuccess(); i++) {
+                    rc = put((byte)(low >>> TOP_SHIFT));
+                    low = (low << BYTE_SHIFT) & MASK;
+                }
+                return rc.isSuccess() ? flush() : rc;
+            }
+
+            int end = bytes.limit();
+            for (int position = bytes.position(); position < end; position++) {
+                int symbol = model.byteToIndex(bytes.get(position) & BYTE_MASK);
+                RC rc = encode(symbol);
+                if (rc.isSuccess() && symbol == model.getEofIndex() && !model.hasOwnEofIndex())
+                    rc = encodeStop(false);
+                if (!rc.isSuccess())
+                    return rc;
+                model.update(symbol);
+            }
+            return flush();
+        }
+
+        private RC encode(int symbol) {
+            long start = model.getCumulative(symbol);
+            if (totalShift != IFrequencyModel.VARIABLE_TOTAL)
+                range >>>= totalShift;
+            else
+                range /= model.getCumulative(0);
+            low += start * range;
+            range *= model.getCumulative(symbol - 1) - start;
+            return normalize();
+        }
+
+        // Codes whether the index shared by the stop symbol and a byte is the stop
+        private RC encodeStop(boolean isStop) {
+            range >>>= 1;
+            if (isStop)
+                low += range;
+            return normalize();
+        }
+
+        private RC normalize() {
+            for (;;) {
+                if (((low ^ (low + range)) >>> TOP_SHIFT) != 0) { // The highest byte is not known yet
+                    if (range >= BOT)
+                        return RC.RC_SUCCESS;
+                    range = -low & (BOT - 1);                       // Cut the range to settle the byte
+                }
+                RC rc = put((byte)(low >>> TOP_SHIFT));
+                if (!rc.isSuccess())
+                    return rc;
+                low = (low << BYTE_SHIFT) & MASK;
+                range <<= BYTE_SHIFT;
+            }
+        }
+
+        private RC put(byte b) {
+            out[outLength++] = b;
+            if (outLength == OUT_SIZE)
+                return flush();
+            return RC.RC_SUCCESS;
+        }
+
+        private RC flush() {
+            RC rc = sink.write(out, 0, outLength);
+            outLength = 0;
+            return rc;
+        }
+    }
+
+    static class Decoder {
+        private enum State { HEADER, INIT, SYMBOLS, END }
+
+        private final ByteSink sink;
+        private final byte[] out = new byte[OUT_SIZE];
+        private int outLength = 0;
+        private State state = State.HEADER;
+        private IFrequencyModel model;
+        private ModelDictionary dictionary;     // The model made from the header starts from it if it is not null
+        private int totalShift;
+        private long low = 0;
+        private long range = MASK;
+        private long code = 0;
+        private final byte[] stash = new byte[MAX_SYMBOL_BYTES + 1]; // Bytes left from the previous packets
+        private int stashIndex = 0;
+        private int stashLength = 0;
+        private ByteBuffer packet;
+        private int packetIndex = 0;
+        private int packetEnd = 0;
+        private boolean isOverread = false;     // Whether more bytes were needed than the input has
+
+        // The code is recognized by MAGIC, the decoder is created after it
+        Decoder(ByteSink sink) {
+            this.sink = sink;
+        }
+
+        // Decodes the code made with the dictionary
+        Decoder(ModelDictionary dictionary, ByteSink sink) {
+            this.sink = sink;
+            this.dictionary = dictionary;
+        }
+
+        // Decodes the code without a header written by the encoder with the given model
+        Decoder(IFrequencyModel model, ByteSink sink) {
+            this.sink = sink;
+            this.model = model;
+            this.totalShift = model.getTotalShift();
+            this.state = State.INIT;
+        }
+
+        private int available() {
+            return stashLength - stashIndex + packetEnd - packetIndex;
+        }
+
+        private int next() {
+            if (stashIndex < stashLength)
+                return stash[stashIndex++] & BYTE_MASK;
+            if (packetIndex < packetEnd)
+                return packet.get(packetIndex++) & BYTE_MASK;
+            isOverread = true;
+            return 0;
+        }
+
+        // Takes the next packet, null means the end of the input
+        RC process(ByteBuffer bytes) {
+            boolean isLast = bytes == null;
+            packet = bytes;
+            packetIndex = isLast ? 0 : bytes.position();
+            packetEnd = isLast ? 0 : bytes.limit();
+
+            RC rc = decode(isLast);
+            if (rc.isSuccess())
+                rc = flush();
+            if (!rc.isSuccess())
+                return rc;
+            if (state == State.END) {
+                if (available() != 0)
+                    return error("Incorrect input file: data after the end of the code");
+                if (isLast)
+                    return RC.RC_SUCCESS;
+            }
+            else if (isLast)
+                return error("Incorrect input file: the code is cut off");
+
+            // Keep the unread bytes for the next packet, there are fewer of them than a symbol may need
+            int rest = available();
+            for (int i = 0; i < rest; i++)
+                stash[i] = (byte)next();
+            stashIndex = 0;
+            stashLength = rest;
+            packet = null;
+            return RC.RC_SUCCESS;
+        }
+
+        private RC decode(boolean isLast) {
+            if (state == State.HEADER) {
+                if (available() < HEADER_SIZE)
+                    return RC.RC_SUCCESS;
+                if (next() != VERSION)
+                    return error("Incorrect input file: unknown range code version");
+                int modelIndex = next();
+                if (modelIndex >= ACExecutor.Model.INCORRECT.ordinal())
+                    return error("Incorrect input file: unknown model");
+                model = ACExecutor.Model.values()[modelIndex].create(dictionary);
+                totalShift = model.getTotalShift();
+                state = State.INIT;
+            }
+            if (state == State.INIT) {
+                if (available() < CODE_BYTES)
+                    return RC.RC_SUCCESS;
+                for (int i = 0; i < CODE_BYTES; i++)
+                    code = (code << BYTE_SHIFT) | next();
+                state = State.SYMBOLS;
+            }
+
+            while (state == State.SYMBOLS && (isLast || available() > MAX_SYMBOL_BYTES)) {
+                long total = model.getCumulative(0);
+                if (totalShift != IFrequencyModel.VARIABLE_TOTAL)
+                    range >>>= totalShift;
+                else
+                    range /= total;
+                long count = (code - low) / range;
+                if (count < 0 || count >= total)
+                    return error("Incorrect input file: corrupted code");
+                int symbol = model.findIndex(count);
+                long start = model.getCumulative(symbol);
+                low += start * range;
+                range *= model.getCumulative(symbol - 1) - start;
+                normalize();
+                boolean isStop = symbol == model.getEofIndex() && (model.hasOwnEofIndex() || decodeStop());
+                if (isOverread)
+                    return error("Incorrect input file: the code is cut off");
+
+                if (isStop) {
+                    state = State.END;
+                    break;
+                }
+                out[outLength++] = (byte)model.indexToByte(symbol);
+                if (outLength == OUT_SIZE) {
+                    RC rc = flush();
+                    if (!rc.isSuccess())
+                        return rc;
+                }
+                model.update(symbol);
+            }
+            return RC.RC_SUCCESS;
+        }
+
+        // Reads the flag after the index shared by the stop symbol and a byte, true if it is the stop
+        private boolean decodeStop() {
+            range >>>= 1;
+            boolean isStop = code - low >= range;
+            if (isStop)
+                low += range;
+            normalize();
+            return isStop;
+        }
+
+        private void normalize() {
+            for (;;) {
+                if (((low ^ (low + range)) >>> TOP_SHIFT) != 0) {
+                    if (range >= BOT)
+                        break;
+                    range = -low & (BOT - 1);
+                }
+                code = ((code << BYTE_SHIFT) & MASK) | next();
+                low = (low << BYTE_SHIFT) & MASK;
+                range <<= BYTE_SHIFT;
+            }
+        }
+
+        private RC flush() {
+            RC rc = sink.write(out, 0, outLength);
+            outLength = 0;
+            return rc;
+        }
+    }
+}
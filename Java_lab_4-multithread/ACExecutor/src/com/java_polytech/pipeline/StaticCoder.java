@@ -0,0 +1,176 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.BufferPool;
+import com.java_polytech.pipeline_interfaces.RC;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Two-pass coding with a frozen model. The encoder keeps the whole input in memory: the first pass counts the bytes,
+// the second one codes them by the range coder with the StaticFrequencyModel made from the counts. The chunks of
+// the input are counted on the fork-join pool while the rest is still arriving. Neither the encoder nor the decoder
+// updates the model, and the decoder finds a symbol in one step, so decoding is much faster than with the adaptive
+// models. It suits write-once, read-many archives; the encoder needs memory for the whole input.
+// Layout: MAGIC, VERSION (1 byte), the serialized model, the range code without its header
+class StaticCoder {
+    static final byte[] MAGIC = {'A', 'C', 'S', 'T'};
+    static private final int VERSION = 1;
+    static private final int HEADER_SIZE = 1;                 // Size of the header after MAGIC, without the model
+    static private final int CHUNK_SIZE = 1 << 20;            // The input is kept and counted in chunks of this size
+    static private final int NUM_OF_BYTES = 256;
+    static private final int BYTE_MASK = 0xff;
+
+    static private RC error(String info) {
+        return new RC(RC.RCWho.EXECUTOR, RC.RCType.CODE_CUSTOM_ERROR, info);
+    }
+
+    // Counts every byte of the chunk
+    static private long[] histogram(byte[] chunk, int length) {
+        long[] counts = new long[NUM_OF_BYTES];
+        for (int i = 0; i < length; i++)
+            counts[chunk[i] & BYTE_MASK]++;
+        return counts;
+    }
+
+    static class Encoder {
+        private final ByteSink sink;
+        private final ArrayList<byte[]> chunks = new ArrayList<>();      // Filled chunks of the input
+        private final ArrayList<Future<long[]>> histograms = new ArrayList<>();
+        private byte[] chunk;                                             // Chunk being filled
+        private int chunkLength = 0;
+
+        Encoder(ByteSink sink) {
+            this.sink = sink;
+        }
+
+        // Takes the next packet, null counts the input and codes it
+        RC process(ByteBuffer bytes) {
+            if (bytes != null) {
+                while (bytes.hasRemaining()) {
+                    if (chunk == null)
+                        chunk = BufferPool.SHARED.lease(RC.RCWho.EXECUTOR, CHUNK_SIZE);
+                    int length = Math.min(CHUNK_SIZE - chunkLength, bytes.remaining());
+                    bytes.get(chunk, chunkLength, length);
+                    chunkLength += length;
+                    if (chunkLength == CHUNK_SIZE)
+                        submit();
+                }
+                return RC.RC_SUCCESS;
+            }
+
+            int lastLength = chunkLength > 0 ? chunkLength : CHUNK_SIZE; // Length of the last kept chunk
+            if (chunkLength > 0)
+                submit();
+            try {
+                return code(lastLength);
+            } finally {
+                cancel();
+            }
+        }
+
+        // Keeps the filled chunk and starts counting it
+        private void submit() {
+            final byte[] data = chunk;
+            final int length = chunkLength;
+            chunks.add(data);
+            histograms.add(ForkJoinPool.commonPool().submit(() -> histogram(data, length)));
+            chunk = null;
+            chunkLength = 0;
+        }
+
+        // The second pass: writes the header with the model and codes the chunks
+        private RC code(int lastLength) {
+            long[] counts = new long[NUM_OF_BYTES];
+            try {
+                for (Future<long[]> future : histograms) {
+                    long[] part = future.get();
+                    for (int b = 0; b < NUM_OF_BYTES; b++)
+                        counts[b] += part[b];
+                }
+            } catch (ExecutionException ex) {
+                return error("Counting of the input failed");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return error("Counting of the input was interrupted");
+            }
+
+            StaticFrequencyModel model = new StaticFrequencyModel(counts);
+            byte[] header = new byte[MAGIC.length + HEADER_SIZE + StaticFrequencyModel.MAX_SERIALIZED_SIZE];
+            System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+            header[MAGIC.length] = (byte)VERSION;
+            int headerLength = MAGIC.length + HEADER_SIZE + model.write(header, MAGIC.length + HEADER_SIZE);
+            RC rc = sink.write(header, 0, headerLength);
+
+            RangeCoder.Encoder coder = new RangeCoder.Encoder(model, sink);
+            for (int i = 0; i < chunks.size() && rc.isSuccess(); i++) {
+                int length = i == chunks.size() - 1 ? lastLength : CHUNK_SIZE;
+                rc = coder.process(ByteBuffer.wrap(chunks.get(i), 0, length));
+            }
+            if (rc.isSuccess())
+                rc = coder.process(null);
+            return rc;
+        }
+
+        // Drops the kept input
+        void cancel() {
+            for (Future<long[]> future : histograms)
+                future.cancel(false);
+            histograms.clear();
+            for (byte[] data : chunks)
+                BufferPool.SHARED.release(RC.RCWho.EXECUTOR, data);
+            chunks.clear();
+            BufferPool.SHARED.release(RC.RCWho.EXECUTOR, chunk);
+            chunk = null;
+            chunkLength = 0;
+        }
+    }
+
+    static class Decoder {
+        private final ByteSink sink;
+        // The header is collected here until the model can be read from it
+        private final byte[] header = new byte[HEADER_SIZE + StaticFrequencyModel.MAX_SERIALIZED_SIZE];
+        private int headerLength = 0;
+        private RangeCoder.Decoder coder;
+
+        // The code is recognized by MAGIC, the decoder is created after it
+        Decoder(ByteSink sink) {
+            this.sink = sink;
+        }
+
+        // Takes the next packet, null means the end of the input
+        RC process(ByteBuffer bytes) {
+            if (coder == null) {
+                int length = bytes == null ? 0 : Math.min(header.length - headerLength, bytes.remaining());
+                if (bytes != null)
+                    bytes.get(header, headerLength, length);
+                headerLength += length;
+                if (headerLength < HEADER_SIZE)
+                    return bytes == null ? error("Incorrect input file: the header is cut off") : RC.RC_SUCCESS;
+                if (header[0] != VERSION)
+                    return error("Incorrect input file: unknown static code version");
+
+                StaticFrequencyModel[] model = new StaticFrequencyModel[1];
+                int modelLength = StaticFrequencyModel.read(header, HEADER_SIZE, headerLength - HEADER_SIZE, model);
+                if (modelLength == StaticFrequencyModel.CORRUPTED)
+                    return error("Incorrect input file: corrupted model");
+                if (modelLength == StaticFrequencyModel.INCOMPLETE)
+                    return bytes == null ? error("Incorrect input file: the header is cut off") : RC.RC_SUCCESS;
+
+                // The bytes collected after the model are the beginning of the code
+                coder = new RangeCoder.Decoder(model[0], sink);
+                int codeStart = HEADER_SIZE + modelLength;
+                if (codeStart < headerLength) {
+                    RC rc = coder.process(ByteBuffer.wrap(header, codeStart, headerLength - codeStart));
+                    if (!rc.isSuccess())
+                        return rc;
+                }
+                if (bytes != null && !bytes.hasRemaining())
+                    return RC.RC_SUCCESS;
+            }
+            return coder.process(bytes);
+        }
+    }
+}
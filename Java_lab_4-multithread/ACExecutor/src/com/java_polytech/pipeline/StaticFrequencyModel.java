@@ -0,0 +1,178 @@
+package com.java_polytech.pipeline;
+
+import java.util.Arrays;
+
+// The frozen frequency model of the two-pass mode. The frequencies are made once from the counts of the whole input
+// and never change, so update does nothing. The total is always 2^TOTAL_BITS, every byte that occurs and the stop
+// symbol get at least 1, the bytes that do not occur get 0. A table maps every cumulative value to its symbol,
+// so the symbol is found in one step.
+// Serialized form: a bitmap of the bytes that occur (32 bytes, the lowest bit of the first byte is byte 0), then
+// 'frequency - 1' of each of them as a varint (7 bits per byte, the highest bit means that more bytes follow).
+// The frequency of the stop symbol is the rest of the total
+class StaticFrequencyModel implements IFrequencyModel {
+    static private final int NUM_OF_SYMBOLS = TABLE_SIZE - 1; // Symbols have indexes from 1 to NUM_OF_SYMBOLS
+    static private final int NUM_OF_BYTES = NUM_OF_SYMBOLS - 1;
+    static private final int EOF_SYMBOL = NUM_OF_SYMBOLS;     // The stop symbol has its own index after all bytes
+    static private final int TOTAL_BITS = 16;
+    static private final int TOTAL = 1 << TOTAL_BITS;
+    static private final int BYTE_BITS = 8;
+    static private final int BYTE_MASK = 0xff;
+    static private final int BITMAP_SIZE = NUM_OF_BYTES / BYTE_BITS;
+    static private final int VARINT_BITS = 7;
+    static private final int VARINT_MASK = (1 << VARINT_BITS) - 1;
+    static private final int VARINT_MORE = 1 << VARINT_BITS;
+    static private final int MAX_VARINT_SIZE = 3;             // A frequency takes at most TOTAL_BITS bits
+    // The largest serialized model
+    static final int MAX_SERIALIZED_SIZE = BITMAP_SIZE + NUM_OF_BYTES * MAX_VARINT_SIZE;
+    static final int INCOMPLETE = -1;                         // Returned by read if more bytes are needed
+    static final int CORRUPTED = -2;                          // Returned by read if the bytes are not a model
+
+    private final long[] cumulative = new long[TABLE_SIZE];
+    private final char[] symbols = new char[TOTAL];           // symbols[cumul] is the symbol whose interval has it
+
+    // Makes the frequencies from the number of each byte, null gives every byte the same frequency
+    StaticFrequencyModel(long[] counts) {
+        long sum = 0;
+        int present = 1; // The stop symbol
+        for (int b = 0; b < NUM_OF_BYTES; b++) {
+            long count = counts == null ? 1 : counts[b];
+            sum += count;
+            if (count > 0)
+                present++;
+        }
+        // Every symbol that occurs gets 1 beyond its share of the rest, the rounding remainder goes to the most
+        // frequent one
+        long share = TOTAL - present;
+        int[] frequency = new int[TABLE_SIZE];
+        int top = EOF_SYMBOL;
+        long assigned = 1;
+        frequency[EOF_SYMBOL] = 1;
+        for (int b = 0; b < NUM_OF_BYTES; b++) {
+            long count = counts == null ? 1 : counts[b];
+            if (count == 0)
+                continue;
+            frequency[b + 1] = (int)(1 + count * share / sum);
+            assigned += frequency[b + 1];
+            if (top == EOF_SYMBOL || frequency[b + 1] > frequency[top])
+                top = b + 1;
+        }
+        frequency[top] += TOTAL - assigned;
+        build(frequency);
+    }
+
+    private StaticFrequencyModel(int[] frequency) {
+        build(frequency);
+    }
+
+    // Fills the cumulative frequencies and the table of the symbols
+    private void build(int[] frequency) {
+        cumulative[NUM_OF_SYMBOLS] = 0;
+        for (int index = NUM_OF_SYMBOLS; index > 0; index--) {
+            cumulative[index - 1] = cumulative[index] + frequency[index];
+            for (int cumul = (int)cumulative[index]; cumul < cumulative[index - 1]; cumul++)
+                symbols[cumul] = (char)index;
+        }
+    }
+
+    // Writes the model into 'out' from 'offset' and returns the number of written bytes
+    int write(byte[] out, int offset) {
+        Arrays.fill(out, offset, offset + BITMAP_SIZE, (byte)0);
+        int position = offset + BITMAP_SIZE;
+        for (int b = 0; b < NUM_OF_BYTES; b++) {
+            int frequency = (int)(cumulative[b] - cumulative[b + 1]);
+            if (frequency == 0)
+                continue;
+            out[offset + b / BYTE_BITS] |= (byte)(1 << (b % BYTE_BITS));
+            int value = frequency - 1;
+            while (value >= VARINT_MORE) {
+                out[position++] = (byte)(value & VARINT_MASK | VARINT_MORE);
+                value >>>= VARINT_BITS;
+            }
+            out[position++] = (byte)value;
+        }
+        return position - offset;
+    }
+
+    // Reads the model written by write from 'length' bytes of 'in' starting at 'offset'. Returns the number of read
+    // bytes, INCOMPLETE or CORRUPTED. The model is put into model[0]
+    static int read(byte[] in, int offset, int length, StaticFrequencyModel[] model) {
+        if (length < BITMAP_SIZE)
+            return INCOMPLETE;
+        int[] frequency = new int[TABLE_SIZE];
+        int end = offset + length;
+        int position = offset + BITMAP_SIZE;
+        long sum = 0;
+        for (int b = 0; b < NUM_OF_BYTES; b++) {
+            if ((in[offset + b / BYTE_BITS] & (1 << (b % BYTE_BITS))) == 0)
+                continue;
+            int value = 0;
+            for (int shift = 0; ; shift += VARINT_BITS) {
+                if (position == end)
+                    return INCOMPLETE;
+                if (shift >= MAX_VARINT_SIZE * VARINT_BITS)
+                    return CORRUPTED;
+                int next = in[position++] & BYTE_MASK;
+                value |= (next & VARINT_MASK) << shift;
+                if ((next & VARINT_MORE) == 0)
+                    break;
+            }
+            frequency[b + 1] = value + 1;
+            sum += frequency[b + 1];
+        }
+        if (sum >= TOTAL) // The stop symbol needs at least 1
+            return CORRUPTED;
+        frequency[EOF_SYMBOL] = (int)(TOTAL - sum);
+        model[0] = new StaticFrequencyModel(frequency);
+        return position - offset;
+    }
+
+    @Override
+    public void reset() {
+        // The model does not adapt, there is nothing to reset
+    }
+
+    @Override
+    public void prime(ModelDictionary dictionary) {
+        // The frequencies come with the code
+    }
+
+    @Override
+    public int byteToIndex(int b) {
+        return b + 1;
+    }
+
+    @Override
+    public int indexToByte(int index) {
+        return index - 1;
+    }
+
+    @Override
+    public int getEofIndex() {
+        return EOF_SYMBOL;
+    }
+
+    @Override
+    public boolean hasOwnEofIndex() {
+        return true;
+    }
+
+    @Override
+    public int getTotalShift() {
+        return TOTAL_BITS;
+    }
+
+    @Override
+    public long getCumulative(int index) {
+        return cumulative[index];
+    }
+
+    @Override
+    public int findIndex(long cumul) {
+        return symbols[(int)cumul];
+    }
+
+    @Override
+    public void update(int index) {
+        // The frequencies are frozen
+    }
+}
@@ -0,0 +1,153 @@
+package com.java_polytech.pipeline;
+
+import java.util.Arrays;
+
+// The frequency model that keeps the symbols sorted by frequency (the most frequent ones have the smallest indexes)
+// Update is linear, but for skewed data the hot symbols are found after a few comparisons.
+// For flat data the search starts from a lookup table: the range of cumulative values is cut into LOOKUP_SIZE parts,
+// and for every part the table keeps the symbol found for its largest value. The cumulative values only grow between
+// rescales, so the kept symbols never pass the sought one and the table stays usable while it is not rebuilt
+class TableFrequencyModel implements IFrequencyModel {
+    // The stop symbol shares its index with a real byte, so a byte coded under this index at the very end of the
+    // stream may be taken for the end. It is kept for compatibility with the streams produced so far
+    static private final int EOF_SYMBOL = 256;
+    private final long[] table = new long[TABLE_SIZE];         // Buffer indicating the number of each character
+    private final long[] cumulative = new long[TABLE_SIZE];    // Buffer indicating the accumulated number of characters
+    private final int[] byteToIndex = new int[TABLE_SIZE - 2]; // Buffer for fast byte-to-index conversion
+    private final int[] indexToByte = new int[TABLE_SIZE];     // Buffer for fast index-to-byte conversion
+    static private final int LOOKUP_BITS = 10;
+    static private final int LOOKUP_SIZE = 1 << LOOKUP_BITS;
+    static private final int REBUILD_SHIFT = 6;  // The table is rebuilt after the total grows by 1/2^REBUILD_SHIFT
+    private final int[] lookup = new int[LOOKUP_SIZE]; // The symbol to start the search from for each part of the range
+    private int lookupShift = 0;                 // A cumulative value is in the part 'value >>> lookupShift'
+    private long lookupTotal = 0;                // The total frequency when the table was built, 0 if it is invalid
+
+    TableFrequencyModel() {
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        // Fill buffers for fast byte-to-index and index-to-byte conversion
+        for (int counter = 0; counter < TABLE_SIZE - 2; counter++) {
+            byteToIndex[counter] = counter + 1;
+            indexToByte[counter + 1] = counter;
+        }
+        // Fill buffer indicating the number of each character and buffer indicating the accumulated number of characters with default values
+        for (int counter = 0; counter < TABLE_SIZE; counter++) {
+            table[counter] = 1;
+            cumulative[counter] = TABLE_SIZE - 1 - counter;
+        }
+        table[0] = 0;
+        lookupTotal = 0;
+    }
+
+    @Override
+    public void prime(ModelDictionary dictionary) {
+        // The bytes are placed in the order of their counts, as update would have placed them
+        Integer[] bytes = new Integer[TABLE_SIZE - 2];
+        for (int b = 0; b < TABLE_SIZE - 2; b++)
+            bytes[b] = b;
+        Arrays.sort(bytes, (a, b) -> Integer.compare(dictionary.order0[b], dictionary.order0[a]));
+        for (int index = 1; index <= TABLE_SIZE - 2; index++) {
+            int b = bytes[index - 1];
+            byteToIndex[b] = index;
+            indexToByte[index] = b;
+            table[index] = 1 + dictionary.order0[b];
+        }
+        table[0] = 0;
+        table[TABLE_SIZE - 1] = 1;
+        long cumul = 0;
+        for (int index = TABLE_SIZE - 1; index >= 0; index--) {
+            cumulative[index] = cumul;
+            cumul += table[index];
+        }
+        lookupTotal = 0;
+    }
+
+    @Override
+    public int byteToIndex(int b) {
+        return byteToIndex[b];
+    }
+
+    @Override
+    public int indexToByte(int index) {
+        return indexToByte[index];
+    }
+
+    @Override
+    public int getEofIndex() {
+        return EOF_SYMBOL;
+    }
+
+    @Override
+    public boolean hasOwnEofIndex() {
+        return false;
+    }
+
+    @Override
+    public int getTotalShift() {
+        return VARIABLE_TOTAL;
+    }
+
+    @Override
+    public long getCumulative(int index) {
+        return cumulative[index];
+    }
+
+    @Override
+    public int findIndex(long cumul) {
+        if (cumulative[0] - lookupTotal >= lookupTotal >> REBUILD_SHIFT)
+            buildLookup();
+        long part = cumul >>> lookupShift;
+        int symbol = part < LOOKUP_SIZE ? lookup[(int)part] : 1;
+        for (; cumulative[symbol] > cumul; ++symbol); // Find symbol
+        return symbol;
+    }
+
+    // Fills the lookup table in one pass over the parts, the found symbol only decreases from part to part
+    private void buildLookup() {
+        lookupTotal = cumulative[0];
+        // Leave room for the total to double, so that the values stay inside the table until it is rebuilt
+        lookupShift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(2 * lookupTotal) - LOOKUP_BITS);
+        int symbol = TABLE_SIZE - 1;
+        for (int part = 0; part < LOOKUP_SIZE; part++) {
+            long value = ((long)(part + 1) << lookupShift) - 1; // The largest value of the part
+            while (symbol > 1 && cumulative[symbol - 1] <= value)
+                symbol--;
+            lookup[part] = symbol;
+        }
+    }
+
+    @Override
+    public void update(int index) {
+        int i;
+        if (cumulative[0] == MAX_FREQUENCY) { // Scale values
+            int cumul = 0;
+            for (i = TABLE_SIZE - 1; i >= 0; i--) {
+                table[i] = (table[i] + 1) / 2;
+                cumulative[i] = cumul;
+                cumul += table[i];
+            }
+            lookupTotal = 0; // The cumulative values have decreased
+        }
+        i = index;
+        while (table[i] == table[i - 1]) { // It is looking for a place for the specified symbol so that it is found correctly during decoding
+            i--;
+        }
+        if (i < index) { // Make an exchange
+            int b_i, b_index;
+            b_i = indexToByte[i];
+            b_index = indexToByte[index];
+            indexToByte[i] = b_index;
+            indexToByte[index] = b_i;
+            byteToIndex[b_i] = index;
+            byteToIndex[b_index] = i;
+        }
+        table[i] += 1; // Perform an increment
+        while (i > 0) {
+            i -= 1;
+            cumulative[i] += 1;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.RC;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Compares the bit I/O of ACExecutor with the byte-at-a-time version it replaced.
+// One operation passes all bits of a test file, so bits per second are the score multiplied by 8 * file size.
+// The writer gets the bits in the pattern of bitPlusFollow: every byte of the file gives a bit and 0..3 follow bits.
+// The test files are looked up in the directory from the property 'benchmark.testFiles'
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitIOBenchmark {
+    static final String TEST_FILES = System.getProperty("benchmark.testFiles", "Manager/testFiles");
+    static private final int MAX_GARBAGE_BITS = 24;
+    static private final int FOLLOW_SHIFT = 1;
+    static private final int FOLLOW_MASK = 3;
+
+    @Param({"test.txt", "test.png", "test.obj"})
+    public String file;
+
+    private byte[] data;
+    private byte[] out;                  // Output of the writers, large enough for any pattern
+    private int outIndex;
+
+    @Setup
+    public void setup() throws IOException {
+        data = Files.readAllBytes(Paths.get(TEST_FILES, file));
+        out = new byte[data.length * (FOLLOW_MASK + 2) + 8];
+        // Both versions must give the same bits
+        int legacyLength = writeLegacy();
+        byte[] legacy = Arrays.copyOf(out, legacyLength);
+        int length = writeWords();
+        if (!Arrays.equals(legacy, Arrays.copyOf(out, length)) || readLegacy() != readWords())
+            throw new IllegalStateException("The bit I/O versions differ on " + file);
+    }
+
+    @Benchmark
+    public long readLegacy() {
+        LegacyBitIO.Reader reader = new LegacyBitIO.Reader(ByteBuffer.wrap(data));
+        long ones = 0;
+        for (int bit = reader.readBit(); bit != LegacyBitIO.Reader.EOF; bit = reader.readBit())
+            ones += bit;
+        return ones;
+    }
+
+    @Benchmark
+    public long readWords() {
+        BitReader reader = new BitReader(ByteBuffer.wrap(data), MAX_GARBAGE_BITS);
+        long ones = 0;
+        for (int bit = reader.readBit(); bit != BitReader.EOF; bit = reader.readBit())
+            ones += bit;
+        return ones;
+    }
+
+    @Benchmark
+    public int writeLegacy() {
+        LegacyBitIO.Writer writer = new LegacyBitIO.Writer(out);
+        for (byte b : data)
+            writer.bitPlusFollow(b & 1, (b >>> FOLLOW_SHIFT) & FOLLOW_MASK);
+        return writer.close();
+    }
+
+    @Benchmark
+    public int writeWords() {
+        outIndex = 0;
+        BitWriter writer = new BitWriter(this::collect);
+        for (byte b : data) {
+            int bit = b & 1;
+            writer.writeBit(bit);
+            writer.writeRun(1 - bit, (b >>> FOLLOW_SHIFT) & FOLLOW_MASK);
+        }
+        writer.flush();
+        return outIndex;
+    }
+
+    private RC collect(byte[] bytes, int offset, int length) {
+        System.arraycopy(bytes, offset, out, outIndex, length);
+        outIndex += length;
+        return RC.RC_SUCCESS;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BitIOBenchmark.class.getSimpleName()).build()).run();
+    }
+}
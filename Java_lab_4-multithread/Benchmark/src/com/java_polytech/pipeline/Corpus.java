@@ -0,0 +1,123 @@
+package com.java_polytech.pipeline;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Synthetic inputs of the benchmarks. The same kind and size always give the same bytes
+class Corpus {
+    static private final long SEED = 20211217;
+    static private final int WORDS = 400;                  // Size of the vocabulary of the text
+    static private final int WORDS_IN_LINE = 12;
+    static private final int IMAGE_WIDTH = 512;            // Pixels in a row of the image in the PNG-like corpus
+    static private final int PIXEL_BYTES = 3;
+    static private final byte[] PNG_SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    static byte[] generate(String kind, int size) {
+        Random random = new Random(SEED);
+        switch (kind) {
+            case "random": {
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+                return data;
+            }
+            case "zeros":
+                return new byte[size];
+            case "text":
+                return text(random, size);
+            case "png":
+                return png(random, size);
+            default:
+                return file(kind, size);
+        }
+    }
+
+    // Any other kind is a path to a file, its contents are repeated up to the size
+    private static byte[] file(String path, int size) {
+        byte[] contents;
+        try {
+            contents = Files.readAllBytes(Paths.get(path));
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Unknown corpus " + path);
+        }
+        if (contents.length == 0)
+            throw new IllegalArgumentException("Empty corpus " + path);
+        byte[] data = new byte[size];
+        for (int offset = 0; offset < size; offset += contents.length)
+            System.arraycopy(contents, 0, data, offset, Math.min(contents.length, size - offset));
+        return data;
+    }
+
+    // Words of a fixed vocabulary, frequent words are short and taken much more often
+    private static byte[] text(Random random, int size) {
+        String[] vocabulary = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 2 + Math.min(i / 40, 8) + random.nextInt(2);
+            for (int j = 0; j < length; j++)
+                word.append((char)('a' + random.nextInt(26)));
+            vocabulary[i] = word.toString();
+        }
+        StringBuilder text = new StringBuilder(size + 16);
+        for (int count = 1; text.length() < size; count++) {
+            double skew = random.nextDouble();
+            text.append(vocabulary[(int)(skew * skew * skew * WORDS)]);
+            text.append(count % WORDS_IN_LINE == 0 ? '\n' : ' ');
+        }
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+            data[i] = (byte)text.charAt(i);
+        return data;
+    }
+
+    // The PNG signature and chunks with the deflated rows of a noisy gradient, cut to the size.
+    // It looks to the coder like a real image file: a short header and then nearly incompressible data
+    private static byte[] png(Random random, int size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + IMAGE_WIDTH);
+        out.write(PNG_SIGNATURE, 0, PNG_SIGNATURE.length);
+        byte[] header = {0, 0, 2, 0, 0, 0, 0, 0, 8, 2, 0, 0, 0};    // Width, height, depth 8, RGB
+        header[2] = (byte)(IMAGE_WIDTH >>> 8);
+        header[3] = (byte)IMAGE_WIDTH;
+        header[6] = (byte)(IMAGE_WIDTH >>> 8);
+        header[7] = (byte)IMAGE_WIDTH;
+        writeChunk(out, "IHDR", header, header.length);
+
+        Deflater deflater = new Deflater();
+        byte[] row = new byte[1 + IMAGE_WIDTH * PIXEL_BYTES];
+        byte[] compressed = new byte[row.length];
+        for (int y = 0; out.size() < size; y++) {
+            row[0] = 1;                                    // The Sub filter: bytes are differences from the left pixel
+            for (int x = 1; x < row.length; x++)
+                row[x] = (byte)((x % PIXEL_BYTES == 0 ? y & 1 : 0) + random.nextInt(5) - 2);
+            deflater.setInput(row);
+            int length = deflater.deflate(compressed, 0, compressed.length, Deflater.SYNC_FLUSH);
+            writeChunk(out, "IDAT", compressed, length);
+        }
+        deflater.end();
+        byte[] data = new byte[size];
+        System.arraycopy(out.toByteArray(), 0, data, 0, size);
+        return data;
+    }
+
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data, int length) {
+        byte[] typeBytes = type.getBytes();
+        writeInt(out, length);
+        out.write(typeBytes, 0, typeBytes.length);
+        out.write(data, 0, length);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        writeInt(out, (int)crc.getValue());
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
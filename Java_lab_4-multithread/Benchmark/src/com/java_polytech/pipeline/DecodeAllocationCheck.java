@@ -0,0 +1,133 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+// Checks that the stream decoder of ACExecutor allocates nothing per decoded symbol.
+// The executor is driven on the current thread by a stub provider and consumer, so the bytes allocated by the thread
+// during run are the bytes allocated by the decoder. The first runs warm the code up, the last one is measured.
+// Only the packets allocate a few objects, so the allocation per symbol must be close to zero.
+// Exits with status 1 if it is not
+public class DecodeAllocationCheck {
+    static private final int CORPUS_SIZE = 8 << 20;
+    static private final int PACKET_SIZE = 1 << 20;
+    static private final int WARMUP_RUNS = 5;
+    static private final double MAX_BYTES_PER_SYMBOL = 0.01;
+    static private final String[] CORPORA = {"text", "random"};
+    static private final String[] MODELS = {"TABLE", "FENWICK"};
+
+    // Hands out the packets of the encoded data
+    private static class Source implements IProvider {
+        private final ByteBuffer[] packets;
+
+        Source(byte[] encoded) {
+            packets = new ByteBuffer[(encoded.length + PACKET_SIZE - 1) / PACKET_SIZE];
+            for (int i = 0; i < packets.length; i++) {
+                int offset = i * PACKET_SIZE;
+                packets[i] = ByteBuffer.wrap(encoded, offset, Math.min(PACKET_SIZE, encoded.length - offset));
+            }
+        }
+
+        @Override
+        public RC setConsumer(IConsumer consumer) {
+            RC rc = consumer.setProvider(this);
+            if (!rc.isSuccess())
+                return rc;
+            for (int i = 0; i < packets.length; i++)
+                consumer.consume(i);
+            return consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
+        }
+
+        @Override
+        public TYPE[] getOutputTypes() {
+            return new TYPE[] {TYPE.BYTE_BUFFER};
+        }
+
+        @Override
+        public IMediator getMediator(TYPE chosenType) {
+            return packet_number -> packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER
+                    ? null : packets[(int)packet_number].duplicate();
+        }
+    }
+
+    // Takes every decoded packet at once and gives it back
+    private static class Sink implements IConsumer {
+        private IMediator mediator;
+        long count = 0;
+
+        @Override
+        public RC setProvider(IProvider provider) {
+            mediator = provider.getMediator(TYPE.BYTE_BUFFER);
+            return RC.RC_SUCCESS;
+        }
+
+        @Override
+        public RC consume(long packet_number) {
+            if (packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER)
+                return RC.RC_SUCCESS;
+            Object data = mediator.getData(packet_number);
+            if (data != null) {
+                count += ((ByteBuffer) data).remaining();
+                mediator.release(data);
+            }
+            return RC.RC_SUCCESS;
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // Decodes the data once and returns the bytes allocated per symbol
+    private static double decode(byte[] encoded, int expectedLength, String config) {
+        ACExecutor executor = new ACExecutor();
+        Sink sink = new Sink();
+        RC rc = executor.setConfig(config);
+        if (rc.isSuccess())
+            rc = executor.setConsumer(sink);
+        if (rc.isSuccess())
+            rc = new Source(encoded).setConsumer(executor);
+        if (!rc.isSuccess())
+            throw new IllegalStateException(rc.info);
+
+        long before = allocatedBytes();
+        executor.run();
+        long allocated = allocatedBytes() - before;
+
+        if (!executor.getCurrentState().isSuccess())
+            throw new IllegalStateException(executor.getCurrentState().info);
+        if (sink.count != expectedLength)
+            throw new IllegalStateException("Decoded " + sink.count + " bytes instead of " + expectedLength);
+        return (double) allocated / expectedLength;
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean isSuccess = true;
+        for (String corpus : CORPORA)
+            for (String model : MODELS) {
+                byte[] data = Corpus.generate(corpus, CORPUS_SIZE);
+                String ioConfig = PipelineRunner.readerConfig(PACKET_SIZE);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                PipelineRunner.run(new ByteArrayInputStream(data), out, ioConfig, ioConfig,
+                        PipelineRunner.executorConfig("ENCODE", PACKET_SIZE, model));
+                byte[] encoded = out.toByteArray();
+                String config = PipelineRunner.executorConfig("DECODE", PACKET_SIZE, model);
+
+                for (int i = 0; i < WARMUP_RUNS; i++)
+                    decode(encoded, data.length, config);
+                double bytesPerSymbol = decode(encoded, data.length, config);
+                boolean isPassed = bytesPerSymbol <= MAX_BYTES_PER_SYMBOL;
+                isSuccess &= isPassed;
+                System.out.printf("%-8s %-8s %.5f bytes per symbol %s%n", corpus, model, bytesPerSymbol,
+                        isPassed ? "OK" : "FAILED");
+            }
+        if (!isSuccess)
+            System.exit(1);
+    }
+}
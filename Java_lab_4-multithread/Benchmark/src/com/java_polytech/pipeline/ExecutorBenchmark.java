@@ -0,0 +1,73 @@
+package com.java_polytech.pipeline;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Encode and decode throughput of ACExecutor. The executor runs between ReaderMy and WriterMy on in-memory streams,
+// the reader and the writer use the same buffer size as the executor.
+// One operation is CORPUS_MB megabytes of the corpus, so the score is in MB/s.
+// A file can be used as the corpus too, e.g. -p corpus=Manager/testFiles/test.png
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorBenchmark {
+    static final int CORPUS_MB = 2;
+    static final int CORPUS_SIZE = CORPUS_MB << 20;
+
+    @Param({"random", "text", "zeros", "png"})
+    public String corpus;
+
+    @Param({"TABLE", "FENWICK", "ORDER1", "ORDER2", "POW2"})
+    public String model;
+
+    @Param({"4096", "65536", "1048576"})
+    public int bufferSize;
+
+    @Param({"ARITHMETIC", "RANGE", "BINARY"})
+    public String engine;
+
+    private byte[] data;
+    private byte[] encoded;
+    private String ioConfig;
+    private String encoderConfig;
+    private String decoderConfig;
+
+    @Setup
+    public void setup() throws IOException {
+        data = Corpus.generate(corpus, CORPUS_SIZE);
+        ioConfig = PipelineRunner.readerConfig(bufferSize);
+        encoderConfig = PipelineRunner.executorConfig("ENCODE", bufferSize, model, engine);
+        decoderConfig = PipelineRunner.executorConfig("DECODE", bufferSize, model, engine);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PipelineRunner.run(new ByteArrayInputStream(data), out, ioConfig, ioConfig, encoderConfig);
+        encoded = out.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_MB)
+    public long encode() {
+        return PipelineRunner.run(new ByteArrayInputStream(data), new PipelineRunner.NullStream(), ioConfig, ioConfig,
+                encoderConfig);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_MB)
+    public long decode() {
+        return PipelineRunner.run(new ByteArrayInputStream(encoded), new PipelineRunner.NullStream(), ioConfig,
+                ioConfig, decoderConfig);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ExecutorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,78 @@
+package com.java_polytech.pipeline;
+
+import java.nio.ByteBuffer;
+
+// The bit reader and writer of ACExecutor before they were moved to 64-bit words.
+// They are kept only as the baseline of BitIOBenchmark
+class LegacyBitIO {
+    static class Reader {
+        static private final int TO_NEXT_BYTE = 0;   // Indicates that it needs to move to the next byte
+        static private final int IT_IS_NEW_BYTE = 8; // A sign that it has just moved to a new byte
+        static public final int EOF = -1;            // Indicates the end of the buffer
+        static private final int MASK = 1;           // Mask for getting the bit
+        private int bitsToGo;                        // The number of bits before switching to a new byte
+        private final ByteBuffer buf;                // Received buffer
+        private int index;                           // Current buffer position
+        private final int end;                       // Position after the last byte of the packet
+
+        Reader(ByteBuffer bytes) {
+            buf = bytes;
+            bitsToGo = IT_IS_NEW_BYTE;
+            index = bytes.position();
+            end = bytes.limit();
+        }
+
+        public int readBit() {
+            if (bitsToGo == TO_NEXT_BYTE) { // Move to the next byte
+                index++;
+                bitsToGo = IT_IS_NEW_BYTE;
+            }
+            if (index == end)
+                return EOF;
+            else
+                return (buf.get(index) >> (IT_IS_NEW_BYTE - bitsToGo--)) & MASK;
+        }
+    }
+
+    static class Writer {
+        static private final int TO_NEXT_BYTE = 0;    // Indicates that it needs to move to the next byte
+        static private final int IT_IS_NEW_BYTE = 8;  // A sign that it has just moved to a new byte
+        static private final int MASK = 0x80;         // Mask for putting the bit
+        static private final int SHIFT = 1;           // Offset by this number of bits when writing a bit
+        private int currentByte;                      // Current byte to processing
+        private int bitsToGo = IT_IS_NEW_BYTE;        // The number of bits before switching to a new byte
+        private final byte[] out;
+        private int outIndex = 0;
+
+        Writer(byte[] out) {
+            this.out = out;
+        }
+
+        public void writeBit(int bit) {
+            currentByte >>= SHIFT;
+            if (bit > 0)
+                currentByte |= MASK;
+            bitsToGo--;
+            if (bitsToGo == TO_NEXT_BYTE) {
+                bitsToGo = IT_IS_NEW_BYTE;
+                out[outIndex++] = (byte)currentByte;
+            }
+        }
+
+        // The loop of ACExecutor.bitPlusFollow
+        public void bitPlusFollow(int bit, int bitsToFollow) {
+            writeBit(bit);
+            while (bitsToFollow > 0) {
+                writeBit(1 - bit);
+                bitsToFollow--;
+            }
+        }
+
+        // Returns the number of written bytes
+        public int close() {
+            if (bitsToGo != IT_IS_NEW_BYTE)
+                out[outIndex++] = (byte)(currentByte >> bitsToGo);
+            return outIndex;
+        }
+    }
+}
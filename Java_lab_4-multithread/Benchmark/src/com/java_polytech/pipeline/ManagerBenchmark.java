@@ -0,0 +1,88 @@
+package com.java_polytech.pipeline;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end run of Manager: configuration, files and a chain of executors that alternately encode and decode.
+// All stages use the same buffer size. One operation is CORPUS_MB megabytes of input, so the score is in MB/s.
+// 'fusion' compares the executors on their own threads with the executors fused into one thread
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ManagerBenchmark {
+    static final int CORPUS_MB = 2;
+
+    @Param({"text", "png"})
+    public String corpus;
+
+    @Param({"1", "2", "4"})
+    public int executors;
+
+    @Param({"4096", "65536", "1048576"})
+    public int bufferSize;
+
+    @Param({"FENWICK"})
+    public String model;
+
+    @Param({"FALSE", "TRUE"})
+    public String fusion;
+
+    private File input;
+    private File output;
+    private String pipelineConfig;
+
+    @Setup
+    public void setup() throws IOException {
+        input = File.createTempFile("benchmark", ".in");
+        output = File.createTempFile("benchmark", ".out");
+        input.deleteOnExit();
+        output.deleteOnExit();
+        Files.write(input.toPath(), Corpus.generate(corpus, CORPUS_MB << 20));
+
+        String ioConfig = PipelineRunner.readerConfig(bufferSize);
+        StringBuilder config = new StringBuilder();
+        config.append("INPUT_FILE = ").append(input.getPath()).append('\n');
+        config.append("OUTPUT_FILE = ").append(output.getPath()).append('\n');
+        config.append("READER_NAME = ").append(ReaderMy.class.getName()).append('\n');
+        config.append("WRITER_NAME = ").append(WriterMy.class.getName()).append('\n');
+        config.append("READER_CONFIG = ").append(ioConfig).append('\n');
+        config.append("WRITER_CONFIG = ").append(ioConfig).append('\n');
+        for (int i = 0; i < executors; i++) {
+            String mode = i % 2 == 0 ? "ENCODE" : "DECODE";
+            config.append("EXECUTOR_NAME = ").append(ACExecutor.class.getName()).append('\n');
+            config.append("EXECUTOR_CONFIG = ").append(PipelineRunner.executorConfig(mode, bufferSize, model))
+                    .append('\n');
+        }
+        config.append("FUSION = ").append(fusion).append('\n');
+        pipelineConfig = PipelineRunner.makeConfig(config.toString());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_MB)
+    public boolean execute() {
+        Manager manager = new Manager();
+        if (!manager.setConfig(pipelineConfig).isSuccess() || !manager.execute())
+            throw new IllegalStateException("The pipeline has failed");
+        return true;
+    }
+
+    @TearDown
+    public void tearDown() {
+        input.delete();
+        output.delete();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ManagerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.java_polytech.pipeline;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+// Compression ratio and speed of every frequency model and coding engine, to pick them for a kind of data.
+// The arithmetic and range engines are run with every model, the binary engine has its own model.
+// Arguments: the corpora (the kinds of Corpus or paths to files), by default all synthetic kinds.
+// A file is coded as it is, a synthetic corpus takes CORPUS_SIZE bytes. Every corpus is encoded and decoded
+// RUNS times by the stock pipeline, the best time is reported.
+// The ratio is the size of the code to the size of the data
+public class ModelReport {
+    static private final int CORPUS_SIZE = 4 << 20;
+    static private final int BUFFER_SIZE = 1 << 16;
+    static private final int RUNS = 3;
+    static private final double MB = 1 << 20;
+    static private final String[] DEFAULT_CORPORA = {"text", "png", "random", "zeros"};
+
+    private static byte[] load(String corpus) throws IOException {
+        File file = new File(corpus);
+        if (file.isFile())
+            return Files.readAllBytes(file.toPath());
+        return Corpus.generate(corpus, CORPUS_SIZE);
+    }
+
+    // Runs the pipeline RUNS times and returns the best time in seconds, the output of the last run is kept
+    private static double time(byte[] input, ByteArrayOutputStream output, String ioConfig, String config) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            output.reset();
+            long start = System.nanoTime();
+            PipelineRunner.run(new ByteArrayInputStream(input), output, ioConfig, ioConfig, config);
+            best = Math.min(best, (System.nanoTime() - start) / 1e9);
+        }
+        return best;
+    }
+
+    // Codes the data with the model and the engine and prints a line of the report
+    private static void report(String corpus, byte[] data, String ioConfig, ACExecutor.Model model,
+                               ACExecutor.Engine engine) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        double encodeTime = time(data, encoded, ioConfig,
+                PipelineRunner.executorConfig("ENCODE", BUFFER_SIZE, model.asString(), engine.asString()));
+        byte[] code = encoded.toByteArray();
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        double decodeTime = time(code, decoded, ioConfig,
+                PipelineRunner.executorConfig("DECODE", BUFFER_SIZE, model.asString()));
+        if (!Arrays.equals(data, decoded.toByteArray()))
+            throw new IllegalStateException("The decoded data differs from " + corpus + " with " + model + "/"
+                    + engine);
+
+        System.out.printf("%-24s %-8s %-10s %10d %8.4f %12.2f %12.2f%n", new File(corpus).getName(),
+                engine == ACExecutor.Engine.BINARY ? "-" : model.asString(), engine.asString(), code.length,
+                (double)code.length / data.length, data.length / MB / encodeTime, data.length / MB / decodeTime);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String[] corpora = args.length > 0 ? args : DEFAULT_CORPORA;
+        String ioConfig = PipelineRunner.readerConfig(BUFFER_SIZE);
+        System.out.printf("%-24s %-8s %-10s %10s %8s %12s %12s%n", "corpus", "model", "engine", "code", "ratio",
+                "encode MB/s", "decode MB/s");
+        for (String corpus : corpora) {
+            byte[] data = load(corpus);
+            for (ACExecutor.Engine engine : ACExecutor.Engine.values()) {
+                if (engine == ACExecutor.Engine.INCORRECT)
+                    continue;
+                if (engine == ACExecutor.Engine.BINARY) {
+                    report(corpus, data, ioConfig, ACExecutor.Model.TABLE, engine);
+                    continue;
+                }
+                for (ACExecutor.Model model : ACExecutor.Model.values())
+                    if (model != ACExecutor.Model.INCORRECT)
+                        report(corpus, data, ioConfig, model, engine);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Builds a pipeline from the stock stages and runs it in threads the way Manager.execute does
+class PipelineRunner {
+    // Writes the configuration into a temporary file and returns its path
+    static String makeConfig(String content) throws IOException {
+        File file = File.createTempFile("benchmark", ".txt");
+        file.deleteOnExit();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file.getPath();
+    }
+
+    static String readerConfig(int bufferSize) throws IOException {
+        return makeConfig("BUFFER_SIZE = " + bufferSize);
+    }
+
+    static String executorConfig(String mode, int outBufferSize, String model) throws IOException {
+        return makeConfig("MODE = " + mode + "\nOUT_BUFFER_SIZE = " + outBufferSize + "\nMODEL = " + model);
+    }
+
+    static String executorConfig(String mode, int outBufferSize, String model, String engine) throws IOException {
+        return makeConfig("MODE = " + mode + "\nOUT_BUFFER_SIZE = " + outBufferSize + "\nMODEL = " + model
+                + "\nENGINE = " + engine);
+    }
+
+    // Passes the input through the executors configured by the files and returns the number of output bytes
+    static long run(InputStream input, OutputStream output, String readerConfig, String writerConfig,
+                    String... executorConfigs) {
+        return run(new ReaderMy(), new WriterMy(), input, output, readerConfig, writerConfig, executorConfigs);
+    }
+
+    // The same with the given reader and writer. A channel writer needs a file stream and counts the bytes itself
+    static long run(IReader reader, IWriter writer, InputStream input, OutputStream output, String readerConfig,
+                    String writerConfig, String... executorConfigs) {
+        IExecutor[] executors = new IExecutor[executorConfigs.length];
+        CountingStream counter = new CountingStream(output);
+
+        RC rc = reader.setConfig(readerConfig);
+        for (int i = 0; i < executors.length && rc.isSuccess(); i++) {
+            executors[i] = new ACExecutor();
+            rc = executors[i].setConfig(executorConfigs[i]);
+        }
+        if (rc.isSuccess())
+            rc = writer.setConfig(writerConfig);
+        if (rc.isSuccess())
+            rc = reader.setInputStream(input);
+        if (rc.isSuccess())
+            rc = writer.setOutputStream(writer instanceof IChannelWriter ? output : counter);
+        IConsumer first = executors.length > 0 ? executors[0] : writer;
+        if (rc.isSuccess())
+            rc = reader.setConsumer(first);
+        for (int i = 0; i < executors.length && rc.isSuccess(); i++)
+            rc = executors[i].setConsumer(i + 1 < executors.length ? executors[i + 1] : writer);
+        check(rc);
+
+        Thread[] threads = new Thread[executors.length + 2];
+        threads[0] = new Thread(reader, "Reader");
+        for (int i = 0; i < executors.length; i++)
+            threads[i + 1] = new Thread(executors[i], "Executor");
+        threads[threads.length - 1] = new Thread(writer, "Writer");
+        for (Thread thread : threads)
+            thread.start();
+        try {
+            for (Thread thread : threads)
+                thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The pipeline was interrupted");
+        }
+
+        check(reader.getCurrentState());
+        for (IExecutor executor : executors)
+            check(executor.getCurrentState());
+        check(writer.getCurrentState());
+        if (writer instanceof IChannelWriter)
+            return ((IChannelWriter) writer).getBytesWritten();
+        return counter.count;
+    }
+
+    private static void check(RC rc) {
+        if (!rc.isSuccess())
+            throw new IllegalStateException(rc.who.get() + ": " + rc.info);
+    }
+
+    // Counts the bytes on the way to the output
+    private static class CountingStream extends OutputStream {
+        private final OutputStream out;
+        long count = 0;
+
+        CountingStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    // Drops everything it gets
+    static class NullStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
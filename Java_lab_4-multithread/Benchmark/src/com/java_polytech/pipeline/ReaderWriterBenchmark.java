@@ -0,0 +1,74 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.IReader;
+import com.java_polytech.pipeline_interfaces.IWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Raw I/O of the readers and writers: a file is copied to another one through the pipeline without executors.
+// One operation is FILE_MB megabytes, so the score is in MB/s
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderWriterBenchmark {
+    static final int FILE_MB = 16;
+    static private final String PACKAGE = "com.java_polytech.pipeline.";
+
+    @Param({"4096", "65536", "1048576"})
+    public int bufferSize;
+
+    @Param({"ReaderMy", "MappedReader"})
+    public String reader;
+
+    @Param({"WriterMy", "ChannelWriter"})
+    public String writer;
+
+    private File input;
+    private File output;
+    private String config;
+
+    @Setup
+    public void setup() throws IOException {
+        input = File.createTempFile("benchmark", ".in");
+        output = File.createTempFile("benchmark", ".out");
+        input.deleteOnExit();
+        output.deleteOnExit();
+        Files.write(input.toPath(), Corpus.generate("random", FILE_MB << 20));
+        config = PipelineRunner.readerConfig(bufferSize);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILE_MB)
+    public long copy() throws ReflectiveOperationException, IOException {
+        try (FileInputStream in = new FileInputStream(input); FileOutputStream out = new FileOutputStream(output)) {
+            return PipelineRunner.run(create(IReader.class, reader), create(IWriter.class, writer), in, out,
+                    config, config);
+        }
+    }
+
+    private static <T> T create(Class<T> type, String name) throws ReflectiveOperationException {
+        return type.cast(Class.forName(PACKAGE + name).getDeclaredConstructor().newInstance());
+    }
+
+    @TearDown
+    public void tearDown() {
+        input.delete();
+        output.delete();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ReaderWriterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
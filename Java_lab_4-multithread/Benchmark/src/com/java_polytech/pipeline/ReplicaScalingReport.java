@@ -0,0 +1,104 @@
+package com.java_polytech.pipeline;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+// Measures how the encoding scales with the replicas of the executor: a file of FILE_SIZE bytes of text is encoded
+// with INDEPENDENT_PACKETS = TRUE by 1, 2, 4, ... replicas up to the number of processors.
+// Arguments: the largest number of replicas, by default the number of processors.
+// Every row runs RUNS times and reports the best time and its speedup over one replica. The code of every row is
+// decoded by a single ordinary decoder and compared with the input, so the merge must have kept the packets in order.
+// The first row encodes the whole file as one stream for the comparison of the sizes. Before the rows an empty file is
+// encoded by the replicas and decoded, as they code no packet at all
+public class ReplicaScalingReport {
+    static private final int FILE_SIZE = 16 << 20;
+    static private final int BUFFER_SIZE = 1 << 16;
+    static private final int RUNS = 3;
+    static private final String MODEL = "FENWICK";
+    static private final double MB = 1 << 20;
+
+    // Writes the config of the encoding of 'in' to 'out' by the replicas and returns its path
+    private static String encodeConfig(File in, File out, String executorConfig, int replicas) throws IOException {
+        String ioConfig = PipelineRunner.readerConfig(BUFFER_SIZE);
+        return PipelineRunner.makeConfig("INPUT_FILE = " + in.getPath()
+                + "\nOUTPUT_FILE = " + out.getPath()
+                + "\nREADER_NAME = " + ReaderMy.class.getName()
+                + "\nWRITER_NAME = " + WriterMy.class.getName()
+                + "\nEXECUTOR_NAME = " + ACExecutor.class.getName()
+                + "\nREADER_CONFIG = " + ioConfig
+                + "\nWRITER_CONFIG = " + ioConfig
+                + "\nEXECUTOR_CONFIG = " + executorConfig
+                + "\nREPLICAS = " + replicas);
+    }
+
+    // Encodes the file RUNS times and returns the best time in seconds
+    private static double encode(String config) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            Manager manager = new Manager();
+            if (!manager.setConfig(config).isSuccess() || !manager.execute())
+                throw new IllegalStateException("The encoding has failed");
+            best = Math.min(best, (System.nanoTime() - start) / 1e9);
+        }
+        return best;
+    }
+
+    // Decodes the code by one ordinary decoder and compares it with the input
+    private static void check(File code, byte[] data) throws IOException {
+        String ioConfig = PipelineRunner.readerConfig(BUFFER_SIZE);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(data.length);
+        try (InputStream input = new FileInputStream(code)) {
+            PipelineRunner.run(input, decoded, ioConfig, ioConfig,
+                    PipelineRunner.executorConfig("DECODE", BUFFER_SIZE, MODEL));
+        }
+        if (!Arrays.equals(data, decoded.toByteArray()))
+            throw new IllegalStateException("The decoded replicas differ from the input");
+    }
+
+    public static void main(String[] args) throws IOException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int maxReplicas = args.length > 0 ? Integer.parseInt(args[0]) : processors;
+        File in = File.createTempFile("replicas", ".in");
+        File out = File.createTempFile("replicas", ".ac");
+        byte[] data = Corpus.generate("text", FILE_SIZE);
+        try {
+            String stream = PipelineRunner.executorConfig("ENCODE", BUFFER_SIZE, MODEL);
+            String independent = PipelineRunner.makeConfig("MODE = ENCODE\nOUT_BUFFER_SIZE = " + BUFFER_SIZE
+                    + "\nMODEL = " + MODEL + "\nINDEPENDENT_PACKETS = TRUE");
+
+            Files.write(in.toPath(), new byte[0]);
+            encode(encodeConfig(in, out, independent, maxReplicas));
+            check(out, new byte[0]);
+            Files.write(in.toPath(), data);
+
+            System.out.printf("%d bytes of text in packets of %d bytes, %d processor(s)%n", FILE_SIZE, BUFFER_SIZE,
+                    processors);
+            System.out.printf("%-8s %9s %12s %10s %8s%n", "packets", "replicas", "code bytes", "MB/s", "speedup");
+            double seconds = encode(encodeConfig(in, out, stream, 1));
+            check(out, data);
+            System.out.printf("%-8s %9d %12d %10.2f %8s%n", "stream", 1, out.length(), FILE_SIZE / MB / seconds, "-");
+
+            double single = 0;
+            for (int step = 1; ; step *= 2) {
+                int replicas = Math.min(step, maxReplicas);
+                seconds = encode(encodeConfig(in, out, independent, replicas));
+                check(out, data);
+                if (replicas == 1)
+                    single = seconds;
+                System.out.printf("%-8s %9d %12d %10.2f %8.2f%n", "packet", replicas, out.length(),
+                        FILE_SIZE / MB / seconds, single / seconds);
+                if (replicas == maxReplicas)
+                    break;
+            }
+        } finally {
+            in.delete();
+            out.delete();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+// The class that stresses the packet hand-off between the pipeline stages.
+// Random data is pushed through Reader -> ACExecutor(ENCODE) -> ACExecutor(DECODE) -> Writer
+// with tiny packets, and the output must match the input byte for byte.
+// Arguments: [number of runs] [random seed] [executor model] [maximum block size] [engine]
+// With a block size the encoder writes the block container, every run takes a random size up to the maximum
+public class StressHarness {
+    static final int DEFAULT_ITERATIONS = 200;         // Number of runs if it is not specified in the arguments
+    // The table model keeps the legacy stop symbol that may cut the last byte of random data, so the model
+    // with its own stop symbol is used by default
+    static final String DEFAULT_MODEL = "FENWICK";
+    static final int MAX_INPUT_SIZE = 50000;           // Maximum size of the random input
+    static final long TIMEOUT_MS = 60000;              // A run that takes longer is considered hung
+
+    private static File makeConfig(String content) throws IOException {
+        File file = File.createTempFile("stress", ".txt");
+        file.deleteOnExit();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    // Returns null if the run succeeded, otherwise the description of the failure
+    private static String runOnce(byte[] input, String model, String engine, int blockSize, int readerBuffer,
+                                  int encoderBuffer, int decoderBuffer, int writerBuffer)
+            throws IOException, InterruptedException {
+        IReader reader = new ReaderMy();
+        IExecutor encoder = new ACExecutor();
+        IExecutor decoder = new ACExecutor();
+        IWriter writer = new WriterMy();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        RC rc = reader.setConfig(makeConfig("BUFFER_SIZE = " + readerBuffer).getPath());
+        if (rc.isSuccess())
+            rc = encoder.setConfig(makeConfig("MODE = ENCODE\nOUT_BUFFER_SIZE = " + encoderBuffer
+                    + "\nMODEL = " + model + (blockSize > 0 ? "\nBLOCK_SIZE = " + blockSize : "")
+                    + "\nENGINE = " + engine).getPath());
+        if (rc.isSuccess())
+            rc = decoder.setConfig(makeConfig("MODE = DECODE\nOUT_BUFFER_SIZE = " + decoderBuffer
+                    + "\nMODEL = " + model).getPath());
+        if (rc.isSuccess())
+            rc = writer.setConfig(makeConfig("BUFFER_SIZE = " + writerBuffer).getPath());
+        if (rc.isSuccess())
+            rc = reader.setInputStream(new ByteArrayInputStream(input));
+        if (rc.isSuccess())
+            rc = writer.setOutputStream(output);
+        if (rc.isSuccess())
+            rc = reader.setConsumer(encoder);
+        if (rc.isSuccess())
+            rc = encoder.setConsumer(decoder);
+        if (rc.isSuccess())
+            rc = decoder.setConsumer(writer);
+        if (!rc.isSuccess())
+            return "construction failed: " + rc.info;
+
+        Runnable[] stages = {reader, encoder, decoder, writer};
+        Thread[] threads = new Thread[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            threads[i] = new Thread(stages[i], "Stress-" + i);
+            threads[i].setDaemon(true); // A hung run must not keep the harness alive
+            threads[i].start();
+        }
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (thread.isAlive())
+                return "hang in " + thread.getName();
+        }
+
+        IState[] states = {reader, encoder, decoder, writer};
+        for (IState state : states)
+            if (!state.getCurrentState().isSuccess())
+                return state.getCurrentState().who.get() + ": " + state.getCurrentState().info;
+        if (!Arrays.equals(input, output.toByteArray()))
+            return "output differs from input (" + output.size() + " bytes instead of " + input.length + ")";
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime());
+        String model = args.length > 2 ? args[2] : DEFAULT_MODEL;
+        int maxBlockSize = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        String engine = args.length > 4 ? args[4] : ACExecutor.Engine.ARITHMETIC.asString();
+        int failures = 0;
+        long packets = 0;
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            byte[] input = new byte[random.nextInt(MAX_INPUT_SIZE)];
+            // Mix compressible runs with noise so that both short and long codes appear
+            for (int i = 0; i < input.length; i++)
+                input[i] = random.nextInt(4) == 0 ? (byte) random.nextInt() : (byte) (i / 64);
+            int readerBuffer = 4 * (1 + random.nextInt(8));
+            int encoderBuffer = 1 + random.nextInt(16);
+            int decoderBuffer = 1 + random.nextInt(16);
+            int writerBuffer = 4 * (1 + random.nextInt(8));
+            int blockSize = maxBlockSize > 0 ? 1 + random.nextInt(maxBlockSize) : 0;
+            packets += input.length / readerBuffer;
+
+            String failure = runOnce(input, model, engine, blockSize, readerBuffer, encoderBuffer, decoderBuffer, writerBuffer);
+            if (failure != null) {
+                failures++;
+                System.out.println("Run " + iteration + " (" + input.length + " bytes, buffers " + readerBuffer + "/"
+                        + encoderBuffer + "/" + decoderBuffer + "/" + writerBuffer + ", block " + blockSize + "): "
+                        + failure);
+            }
+        }
+        System.out.println(iterations + " runs, about " + packets + " reader packets, " + failures + " failure(s)");
+        System.out.println(BufferPool.SHARED.statistics());
+        if (failures != 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,118 @@
+package com.java_polytech.pipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+// Compares the platform and the virtual threads of the stages: a batch of JOBS files runs side by side through
+// chains of 1, 4 and 16 executors that alternately encode and decode.
+// Arguments: the number of files of the batch, by default JOBS. Every file takes FILE_SIZE bytes of text.
+// Every batch runs RUNS times, the best time is reported with the peak number of platform threads alive and the
+// peak heap use during the runs. A platform thread also reserves its stack outside the heap, which is not counted.
+// Virtual threads need Java 21, on an older JVM both rows use platform threads
+public class ThreadModeReport {
+    static private final int JOBS = 8;
+    static private final int FILE_SIZE = 256 << 10;
+    static private final int BUFFER_SIZE = 1 << 16;
+    static private final int RUNS = 3;
+    static private final int[] CHAINS = {1, 4, 16};
+    static private final double MB = 1 << 20;
+
+    // Writes the config of the batch from the files of 'in' to 'out' and returns its path
+    private static String batchConfig(File in, File out, int jobs, int executors, ThreadMode mode)
+            throws IOException {
+        String ioConfig = PipelineRunner.readerConfig(BUFFER_SIZE);
+        StringBuilder config = new StringBuilder();
+        config.append("INPUT_FILE = ").append(new File(in, "*.in").getPath()).append('\n');
+        config.append("OUTPUT_FILE = ").append(new File(out, "*").getPath()).append('\n');
+        config.append("READER_NAME = ").append(ReaderMy.class.getName()).append('\n');
+        config.append("WRITER_NAME = ").append(WriterMy.class.getName()).append('\n');
+        config.append("READER_CONFIG = ").append(ioConfig).append('\n');
+        config.append("WRITER_CONFIG = ").append(ioConfig).append('\n');
+        for (int i = 0; i < executors; i++) {
+            String executorMode = i % 2 == 0 ? "ENCODE" : "DECODE";
+            config.append("EXECUTOR_NAME = ").append(ACExecutor.class.getName()).append('\n');
+            config.append("EXECUTOR_CONFIG = ")
+                    .append(PipelineRunner.executorConfig(executorMode, BUFFER_SIZE, "FENWICK")).append('\n');
+        }
+        config.append("WORKERS = ").append(jobs).append('\n');
+        config.append("THREADS = ").append(mode.asString()).append('\n');
+        return PipelineRunner.makeConfig(config.toString());
+    }
+
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        return peak;
+    }
+
+    private static void resetHeapPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+    }
+
+    // Runs the batch RUNS times and prints a line of the report
+    private static void report(File in, File out, byte[] data, int jobs, int executors, ThreadMode mode)
+            throws IOException {
+        String config = batchConfig(in, out, jobs, executors, mode);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        double best = Double.MAX_VALUE;
+        int peakThreads = 0;
+        long peakHeap = 0;
+        for (int i = 0; i < RUNS; i++) {
+            System.gc();
+            threads.resetPeakThreadCount();
+            resetHeapPeak();
+            long start = System.nanoTime();
+            Manager manager = new Manager();
+            if (!manager.setConfig(config).isSuccess() || !manager.execute())
+                throw new IllegalStateException("The batch has failed");
+            best = Math.min(best, (System.nanoTime() - start) / 1e9);
+            peakThreads = Math.max(peakThreads, threads.getPeakThreadCount());
+            peakHeap = Math.max(peakHeap, heapPeak());
+        }
+
+        // An even chain decodes everything it has encoded
+        if (executors % 2 == 0)
+            for (File file : out.listFiles())
+                if (!Arrays.equals(data, Files.readAllBytes(file.toPath())))
+                    throw new IllegalStateException("The output differs from the input: " + file);
+
+        System.out.printf("%-9s %9d %14d %14.1f %12.2f%n", mode.asString(), executors, peakThreads, peakHeap / MB,
+                (double)jobs * data.length / MB / best);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int jobs = args.length > 0 ? Integer.parseInt(args[0]) : JOBS;
+        File in = Files.createTempDirectory("threads").toFile();
+        File out = Files.createTempDirectory("threads").toFile();
+        byte[] data = Corpus.generate("text", FILE_SIZE);
+        try {
+            for (int i = 0; i < jobs; i++)
+                Files.write(new File(in, i + ".in").toPath(), data);
+
+            if (!ThreadMode.isVirtualAvailable())
+                System.out.println("No virtual threads in this JVM, VIRTUAL runs on platform threads");
+            System.out.printf("%d file(s) of %d bytes side by side%n", jobs, FILE_SIZE);
+            System.out.printf("%-9s %9s %14s %14s %12s%n", "threads", "executors", "peak threads", "peak heap MB",
+                    "MB/s");
+            for (int executors : CHAINS)
+                for (ThreadMode mode : new ThreadMode[]{ThreadMode.PLATFORM, ThreadMode.VIRTUAL})
+                    report(in, out, data, jobs, executors, mode);
+        } finally {
+            for (File dir : new File[]{in, out}) {
+                for (File file : dir.listFiles())
+                    file.delete();
+                dir.delete();
+            }
+        }
+    }
+}
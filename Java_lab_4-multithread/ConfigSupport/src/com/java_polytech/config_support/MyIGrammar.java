@@ -10,4 +10,12 @@ public interface MyIGrammar {
     boolean isGrammarKey(String key);
     // Returns the number of fields in the grammar
     int numberOfFields();
+    // Returns true if the field 'key' may be omitted in the config file
+    default boolean isOptionalKey(String key) {
+        return false;
+    }
+    // Returns the number of fields that may be omitted in the config file
+    default int numberOfOptionalFields() {
+        return 0;
+    }
 }
\ No newline at end of file
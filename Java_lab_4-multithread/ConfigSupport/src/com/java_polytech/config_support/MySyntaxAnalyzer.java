@@ -15,6 +15,7 @@ public class MySyntaxAnalyzer {
     RC.RCWho who;                                              // Grammar owner
     MyIGrammar curGrammar;                                       // The grammar on the basis of which the syntactic analysis takes place
     private HashMap<String, ArrayList<String>> LOADED_PARAMS;  // Container with parsing results
+    static private final int NUM_OF_VALUES = 1;                // How many times an optional field may be set
 
     public MySyntaxAnalyzer(RC.RCWho owner, MyIGrammar grammar) {
         who = owner;
@@ -66,8 +67,12 @@ public class MySyntaxAnalyzer {
                 return new RC(who, RC.RCType.CODE_CONFIG_GRAMMAR_ERROR, "In config file, unknown field " + field[0]);
         }
 
-        // Check if all the necessary elements are filled in
-        if (hashMap.size() != curGrammar.numberOfFields())
+        // Check if all the necessary elements are filled in (optional ones may be omitted)
+        int requiredFields = 0;
+        for (String key : hashMap.keySet())
+            if (!curGrammar.isOptionalKey(key))
+                requiredFields++;
+        if (requiredFields != curGrammar.numberOfFields() - curGrammar.numberOfOptionalFields())
             return new RC(who, RC.RCType.CODE_CONFIG_GRAMMAR_ERROR, "In config file, not enough fields");
 
         LOADED_PARAMS = hashMap;
@@ -82,4 +87,18 @@ public class MySyntaxAnalyzer {
             return new Pair<>(new RC(who, RC.RCType.CODE_CUSTOM_ERROR, "Unknown field asked from grammar"),
                     LOADED_PARAMS.get(field));
     }
+
+    // Returns the only value of the optional field, null if the field is omitted
+    public Pair<RC, String> GetOptionalValue(String field) {
+        Pair<RC, ArrayList<String>> val = GetFieldValues(field);
+        if (!val.getKey().isSuccess())
+            return new Pair<>(val.getKey(), null);
+        if (val.getValue() == null)
+            return new Pair<>(RC.RC_SUCCESS, null);
+        // The value of the field is not set the number of times that is necessary
+        if (val.getValue().size() != NUM_OF_VALUES)
+            return new Pair<>(new RC(who, RC.RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                    + field + " must be set " + NUM_OF_VALUES + " time(s)"), null);
+        return new Pair<>(RC.RC_SUCCESS, val.getValue().get(NUM_OF_VALUES - 1));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.java_polytech.pipeline;
+
+// The counters of an executor that encodes or decodes
+public interface CodingStageMonitorMBean extends StageMonitorMBean {
+    // The plain bytes per coded byte
+    double getCompressionRatio();
+}
@@ -0,0 +1,98 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.*;
+
+import static com.java_polytech.pipeline_interfaces.RC.*;
+
+// Adjacent executors that run on one thread and stand in the pipeline as one stage.
+// The first executor waits for the packets of the provider as usual. Every next one is announced the packets of the
+// previous one through a Port, which codes them at once by step on the same thread: a packet is taken from the
+// provider as soon as it is published, so nothing waits between the fused executors and no thread is woken up.
+// The executors are configured before they are fused, the consumer of the chain gets the packets of the last one
+class FusedChain implements IExecutor, IBufferedStage {
+    private final IFusibleExecutor[] executors;
+
+    FusedChain(IFusibleExecutor[] executors) {
+        this.executors = executors;
+    }
+
+    // Codes the packets of the previous executor by the next one
+    private static class Port implements IConsumer {
+        private final IFusibleExecutor executor;
+        private boolean isEnded = false;    // The executor has ended, the packets announced after it are ignored
+
+        Port(IFusibleExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public RC setProvider(IProvider provider) {
+            return executor.setProvider(provider);
+        }
+
+        @Override
+        public RC consume(long packet_number) {
+            if (!isEnded)
+                isEnded = !executor.step(packet_number);
+            return executor.getCurrentState();
+        }
+    }
+
+    @Override
+    public RC setConfig(String str) {
+        return new RC(RCWho.MANAGER, RCType.CODE_CUSTOM_ERROR, "The fused executors are configured one by one");
+    }
+
+    @Override
+    public RC setProvider(IProvider provider) {
+        return executors[0].setProvider(provider);
+    }
+
+    @Override
+    public RC setConsumer(IConsumer consumer) {
+        for (int i = 0; i < executors.length - 1; i++) {
+            RC rc = executors[i].setConsumer(new Port(executors[i + 1]));
+            if (!rc.isSuccess())
+                return rc;
+        }
+        return executors[executors.length - 1].setConsumer(consumer);
+    }
+
+    @Override
+    public RC consume(long packet_number) {
+        return executors[0].consume(packet_number);
+    }
+
+    @Override
+    public TYPE[] getOutputTypes() {
+        return executors[executors.length - 1].getOutputTypes();
+    }
+
+    @Override
+    public IMediator getMediator(TYPE chosenType) {
+        return executors[executors.length - 1].getMediator(chosenType);
+    }
+
+    @Override
+    public RC getCurrentState() {
+        for (IFusibleExecutor executor : executors)
+            if (!executor.getCurrentState().isSuccess())
+                return executor.getCurrentState();
+        return RC_SUCCESS;
+    }
+
+    @Override
+    public long getMaxBufferedBytes() {
+        long bytes = 0;
+        for (IFusibleExecutor executor : executors)
+            if (executor instanceof IBufferedStage)
+                bytes += ((IBufferedStage) executor).getMaxBufferedBytes();
+        return bytes;
+    }
+
+    // The first executor drives the others
+    @Override
+    public void run() {
+        executors[0].run();
+    }
+}
@@ -4,12 +4,21 @@ import com.java_polytech.config_support.MySyntaxAnalyzer;
 import com.java_polytech.pipeline_interfaces.*;
 
 import javafx.util.Pair;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
+import java.util.Collections;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
@@ -17,6 +26,7 @@ import java.util.logging.SimpleFormatter;
 import static com.java_polytech.pipeline_interfaces.RC.*;
 
 // The class that performs pipeline management
+// A config builds one pipeline per input file, every file gets its own stages; the fields are described in ManagerGrammarMy
 public class Manager implements IConfigurable {
     boolean IsInited;                                    // Flag indicating whether the manager is initialized
     IReader Reader;                                      // A reference to an instance of a class that reads from a file
@@ -28,9 +38,35 @@ public class Manager implements IConfigurable {
     FileOutputStream FileOut;                            // Output file
     private static Logger logger;
 
+    // The parsed config, the stages of every file are made from it
+    private final ArrayList<String> inputFiles = new ArrayList<>();
+    private final ArrayList<String> outputFiles = new ArrayList<>();
+    private Class<?> readerClass;
+    private final ArrayList<Class<?>> executorClasses = new ArrayList<>();
+    private Class<?> writerClass;
+    private String readerConfig;
+    private ArrayList<String> executorConfigs;
+    private String writerConfig;
+    private boolean isBatch = false;                     // Whether the config lists several files or a glob
+    private int workers;                                 // Number of the files of a batch coded at once
+    private long memoryLimit;                            // The bytes the buffers of these files take at most
+    private ThreadMode threadMode = ThreadMode.PLATFORM; // The kind of threads the stages run on
+    private int creditBytes = 0;                         // The credits of the stages, 0 leaves their defaults
+    private final ArrayList<Integer> replicas = new ArrayList<>(); // The number of replicas of every executor
+    private boolean isFused = false;                     // Whether the adjacent executors run on one thread
+    private String pipelineName;                         // The name the MBeans of the stages are registered under
+    private final PipelineMonitor monitor = new PipelineMonitor();
+    private String inputFile;                            // The input file of the built pipeline
+    private String batchSummary;                         // The aggregate report of the last batch
+    static private final double MB = 1 << 20;
+    static private final String TRUE_VALUE = "TRUE";
+    static private final String FALSE_VALUE = "FALSE";
+
     public static boolean handleRC(RC returnCode) {
         if (!returnCode.isSuccess()) {
-            logger.severe("ERROR: " + returnCode.who.get() + ": " + returnCode.info);
+            // The log is absent if the manager is used without main, e.g. by the benchmarks
+            if (logger != null)
+                logger.severe("ERROR: " + returnCode.who.get() + ": " + returnCode.info);
             return false;
         }
         return true;
@@ -40,6 +76,22 @@ public class Manager implements IConfigurable {
         IsInited = false;
     }
 
+    // The manager of one file of the batch, it shares the parsed config
+    private Manager(Manager batch) {
+        IsInited = false;
+        readerClass = batch.readerClass;
+        executorClasses.addAll(batch.executorClasses);
+        writerClass = batch.writerClass;
+        readerConfig = batch.readerConfig;
+        executorConfigs = batch.executorConfigs;
+        writerConfig = batch.writerConfig;
+        threadMode = batch.threadMode;
+        creditBytes = batch.creditBytes;
+        replicas.addAll(batch.replicas);
+        isFused = batch.isFused;
+        pipelineName = batch.pipelineName;
+    }
+
     @Override
     public RC setConfig(String str) {
         // Perform a syntactic analysis of the configuration file
@@ -48,39 +100,26 @@ public class Manager implements IConfigurable {
 
         // If the syntactic analysis was successful, conduct a semantic analysis
         if (code.isSuccess()) {
-            // Open files
-            try {
-                Pair<RC, ArrayList<String>> val = config.GetFieldValues(ManagerGrammarMy.ConfigParams.INPUT_FILE.asString());
-
-                if (!val.getKey().isSuccess())
-                    return val.getKey();
-
-                // The value of the field is not set the number of times that is necessary
-                if(val.getValue().size() != NUM_OF_READERS)
-                    return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
-                            + ManagerGrammarMy.ConfigParams.INPUT_FILE.asString() + " must be set "
-                            + NUM_OF_READERS + " time(s)");
-
-                FileIn = new FileInputStream(val.getValue().get(NUM_OF_READERS - 1));
-            } catch (FileNotFoundException e) { // Input file not found
-                return RC_MANAGER_INVALID_INPUT_FILE;
-            }
-
-            try {
-                Pair<RC, ArrayList<String>> val = config.GetFieldValues(ManagerGrammarMy.ConfigParams.OUTPUT_FILE.asString());
-
-                if (!val.getKey().isSuccess())
-                    return val.getKey();
-
-                // The value of the field is not set the number of times that is necessary
-                if(val.getValue().size() != NUM_OF_WRITERS)
-                    return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
-                            + ManagerGrammarMy.ConfigParams.OUTPUT_FILE.asString() + " must be set "
-                            + NUM_OF_WRITERS + " time(s)");
-
-                FileOut = new FileOutputStream(val.getValue().get(NUM_OF_WRITERS - 1));
-            } catch (FileNotFoundException e) { // Output file not found
-                return RC_MANAGER_INVALID_OUTPUT_FILE;
+            // Collect the files
+            Pair<RC, ArrayList<String>> inputs = config.GetFieldValues(ManagerGrammarMy.ConfigParams.INPUT_FILE.asString());
+            if (!inputs.getKey().isSuccess())
+                return inputs.getKey();
+
+            Pair<RC, ArrayList<String>> outputs = config.GetFieldValues(ManagerGrammarMy.ConfigParams.OUTPUT_FILE.asString());
+            if (!outputs.getKey().isSuccess())
+                return outputs.getKey();
+
+            // Every input file needs its output file
+            if (inputs.getValue().size() != outputs.getValue().size())
+                return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The values of fields "
+                        + ManagerGrammarMy.ConfigParams.INPUT_FILE.asString() + " and "
+                        + ManagerGrammarMy.ConfigParams.OUTPUT_FILE.asString() + " must be set the same number of times");
+
+            isBatch = inputs.getValue().size() > NUM_OF_READERS;
+            for (int i = 0; i < inputs.getValue().size(); i++) {
+                RC tmp = addFiles(inputs.getValue().get(i), outputs.getValue().get(i));
+                if (!tmp.isSuccess())
+                    return tmp;
             }
 
             // Get all classes
@@ -96,13 +135,10 @@ public class Manager implements IConfigurable {
                             + ManagerGrammarMy.ConfigParams.READER_NAME.asString() + " must be set "
                             + NUM_OF_READERS + " time(s)");
 
-                Class<?> reader = Class.forName(val.getValue().get(NUM_OF_READERS - 1));
-                if (IReader.class.isAssignableFrom(reader)) {
-                    Reader = (IReader) reader.getDeclaredConstructor().newInstance();
-                }
-                else { // The class does not meet the necessary requirements
+                readerClass = Class.forName(val.getValue().get(NUM_OF_READERS - 1));
+                if (!IReader.class.isAssignableFrom(readerClass)) // The class does not meet the necessary requirements
                     return RC_MANAGER_INVALID_READER_CLASS;
-                }
+                readerClass.getDeclaredConstructor();
             }
             catch (Exception e) { // The specified class was not found
                 return RC_MANAGER_INVALID_READER_CLASS;
@@ -116,12 +152,10 @@ public class Manager implements IConfigurable {
 
                 for(String name: val.getValue()){
                     Class<?> executor = Class.forName(name);
-                    if (IExecutor.class.isAssignableFrom(executor)) {
-                        Executors.add((IExecutor) executor.getDeclaredConstructor().newInstance());
-                    }
-                    else { // The class does not meet the necessary requirements
+                    if (!IExecutor.class.isAssignableFrom(executor)) // The class does not meet the necessary requirements
                         return RC_MANAGER_INVALID_EXECUTOR_CLASS;
-                    }
+                    executor.getDeclaredConstructor();
+                    executorClasses.add(executor);
                 }
             }
             catch (Exception e) { // The specified class was not found
@@ -140,21 +174,16 @@ public class Manager implements IConfigurable {
                             + ManagerGrammarMy.ConfigParams.WRITER_NAME.asString() + " must be set "
                             + NUM_OF_WRITERS + " time(s)");
 
-                Class<?> writer = Class.forName(val.getValue().get(NUM_OF_WRITERS - 1));
-                if (IWriter.class.isAssignableFrom(writer)) {
-                    Writer = (IWriter) writer.getDeclaredConstructor().newInstance();
-                }
-                else { // The class does not meet the necessary requirements
+                writerClass = Class.forName(val.getValue().get(NUM_OF_WRITERS - 1));
+                if (!IWriter.class.isAssignableFrom(writerClass)) // The class does not meet the necessary requirements
                     return RC_MANAGER_INVALID_WRITER_CLASS;
-                }
+                writerClass.getDeclaredConstructor();
             }
             catch (Exception e) { // The specified class was not found
                 return RC_MANAGER_INVALID_WRITER_CLASS;
             }
 
-            // Set all configurations
-            RC tmp;
-
+            // Get all configurations
             Pair<RC, ArrayList<String>> val = config.GetFieldValues(ManagerGrammarMy.ConfigParams.READER_CONFIG.asString());
             if (!val.getKey().isSuccess())
                 return val.getKey();
@@ -165,26 +194,19 @@ public class Manager implements IConfigurable {
                         + ManagerGrammarMy.ConfigParams.READER_CONFIG.asString() + " must be set "
                         + NUM_OF_READERS + " time(s)");
 
-            tmp = Reader.setConfig(val.getValue().get(NUM_OF_READERS - 1));
-            if (!tmp.isSuccess())
-                return tmp;
+            readerConfig = val.getValue().get(NUM_OF_READERS - 1);
 
             val = config.GetFieldValues(ManagerGrammarMy.ConfigParams.EXECUTOR_CONFIG.asString());
             if (!val.getKey().isSuccess())
                 return val.getKey();
 
             // The value of the field is not set the number of times that is necessary
-            if(val.getValue().size() != Executors.size())
+            if(val.getValue().size() != executorClasses.size())
                 return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
                         + ManagerGrammarMy.ConfigParams.EXECUTOR_CONFIG.asString() + " must be set "
-                        + Executors.size() + " time(s)");
+                        + executorClasses.size() + " time(s)");
 
-            int i = 0;
-            for(IExecutor executor: Executors) {
-                tmp = executor.setConfig(val.getValue().get(i++));
-                if (!tmp.isSuccess())
-                    return tmp;
-            }
+            executorConfigs = val.getValue();
 
             val = config.GetFieldValues(ManagerGrammarMy.ConfigParams.WRITER_CONFIG.asString());
             if (!val.getKey().isSuccess())
@@ -196,37 +218,319 @@ public class Manager implements IConfigurable {
                         + ManagerGrammarMy.ConfigParams.WRITER_CONFIG.asString() + " must be set "
                         + NUM_OF_WRITERS + " time(s)");
 
-            tmp = Writer.setConfig(val.getValue().get(NUM_OF_WRITERS - 1));
-            if (!tmp.isSuccess())
-                return tmp;
+            writerConfig = val.getValue().get(NUM_OF_WRITERS - 1);
 
-            // Build a pipeline from the specified elements
-            tmp = Reader.setInputStream(FileIn);
-            if (!tmp.isSuccess())
-                return tmp;
+            Pair<RC, String> option;  // The only value of an optional field, null if the field is omitted
 
-            tmp = Reader.setConsumer(Executors.get(0));
-            if (!tmp.isSuccess())
-                return tmp;
+            // The number of workers is optional, by default a batch takes all processors
+            workers = Runtime.getRuntime().availableProcessors();
+            try {
+                option = config.GetOptionalValue(ManagerGrammarMy.ConfigParams.WORKERS.asString());
+                if (!option.getKey().isSuccess())
+                    return option.getKey();
+
+                if (option.getValue() != null) {
+                    workers = Integer.parseInt(option.getValue());
+                    // A negative number or zero is specified as the value
+                    if (workers <= 0)
+                        return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ManagerGrammarMy.ConfigParams.WORKERS.asString() + " must be positive");
+                }
+            } catch (NumberFormatException ex) { // The value is not a number
+                return RC_MANAGER_CONFIG_SEMANTIC_ERROR;
+            }
 
-            for(int j = 0; j < Executors.size() - 1; ++j){
-                tmp = Executors.get(j).setConsumer(Executors.get(j + 1));
+            // The memory limit is optional, by default the buffers of a batch may take half of the heap
+            memoryLimit = Runtime.getRuntime().maxMemory() / 2;
+            try {
+                option = config.GetOptionalValue(ManagerGrammarMy.ConfigParams.MEMORY_LIMIT.asString());
+                if (!option.getKey().isSuccess())
+                    return option.getKey();
+
+                if (option.getValue() != null) {
+                    memoryLimit = Long.parseLong(option.getValue());
+                    // A negative number or zero is specified as the value
+                    if (memoryLimit <= 0)
+                        return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ManagerGrammarMy.ConfigParams.MEMORY_LIMIT.asString() + " must be positive");
+                }
+            } catch (NumberFormatException ex) { // The value is not a number
+                return RC_MANAGER_CONFIG_SEMANTIC_ERROR;
+            }
+
+            // The kind of threads is optional, by default the stages run on platform threads
+            option = config.GetOptionalValue(ManagerGrammarMy.ConfigParams.THREADS.asString());
+            if (!option.getKey().isSuccess())
+                return option.getKey();
+
+            if (option.getValue() != null) {
+                threadMode = ThreadMode.ToEnum(option.getValue());
+                if (threadMode == ThreadMode.INCORRECT)
+                    return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                            + ManagerGrammarMy.ConfigParams.THREADS.asString() + " must be "
+                            + ThreadMode.PLATFORM.asString() + " or " + ThreadMode.VIRTUAL.asString());
+                if (threadMode == ThreadMode.VIRTUAL && !ThreadMode.isVirtualAvailable() && logger != null)
+                    logger.warning("Virtual threads are not available in this JVM, the stages run on platform threads");
+            }
+
+            // The credits are optional, by default every stage has its own
+            try {
+                option = config.GetOptionalValue(ManagerGrammarMy.ConfigParams.CREDIT_BYTES.asString());
+                if (!option.getKey().isSuccess())
+                    return option.getKey();
+
+                if (option.getValue() != null) {
+                    creditBytes = Integer.parseInt(option.getValue());
+                    // A negative number or zero is specified as the value
+                    if (creditBytes <= 0)
+                        return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ManagerGrammarMy.ConfigParams.CREDIT_BYTES.asString() + " must be positive");
+                }
+            } catch (NumberFormatException ex) { // The value is not a number
+                return RC_MANAGER_CONFIG_SEMANTIC_ERROR;
+            }
+
+            // The replicas are optional, by default every executor runs alone
+            try {
+                val = config.GetFieldValues(ManagerGrammarMy.ConfigParams.REPLICAS.asString());
+                if (!val.getKey().isSuccess())
+                    return val.getKey();
+
+                for (int i = 0; i < executorClasses.size(); i++)
+                    replicas.add(1);
+                if (val.getValue() != null) {
+                    // The value of the field is not set the number of times that is necessary
+                    if (val.getValue().size() != executorClasses.size())
+                        return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ManagerGrammarMy.ConfigParams.REPLICAS.asString() + " must be set "
+                                + executorClasses.size() + " time(s)");
+
+                    for (int i = 0; i < executorClasses.size(); i++) {
+                        int number = Integer.parseInt(val.getValue().get(i));
+                        // A negative number or zero is specified as the value
+                        if (number <= 0)
+                            return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                    + ManagerGrammarMy.ConfigParams.REPLICAS.asString() + " must be positive");
+                        // Only a replicable executor may have several replicas
+                        if (number > 1 && !IReplicableExecutor.class.isAssignableFrom(executorClasses.get(i)))
+                            return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The executor "
+                                    + executorClasses.get(i).getName() + " cannot have several replicas");
+                        replicas.set(i, number);
+                    }
+                }
+            } catch (NumberFormatException ex) { // The value is not a number
+                return RC_MANAGER_CONFIG_SEMANTIC_ERROR;
+            }
+
+            // The fusion is optional, by default every executor runs on its own thread
+            option = config.GetOptionalValue(ManagerGrammarMy.ConfigParams.FUSION.asString());
+            if (!option.getKey().isSuccess())
+                return option.getKey();
+
+            if (option.getValue() != null) {
+                String value = option.getValue();
+                if (!value.equalsIgnoreCase(TRUE_VALUE) && !value.equalsIgnoreCase(FALSE_VALUE))
+                    return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                            + ManagerGrammarMy.ConfigParams.FUSION.asString() + " must be "
+                            + TRUE_VALUE + " or " + FALSE_VALUE);
+                isFused = value.equalsIgnoreCase(TRUE_VALUE);
+            }
+
+            // The name is optional, by default the pipeline is named after its config file
+            pipelineName = new File(str).getName();
+            if (pipelineName.lastIndexOf('.') > 0)
+                pipelineName = pipelineName.substring(0, pipelineName.lastIndexOf('.'));
+            option = config.GetOptionalValue(ManagerGrammarMy.ConfigParams.PIPELINE_NAME.asString());
+            if (!option.getKey().isSuccess())
+                return option.getKey();
+
+            if (option.getValue() != null)
+                pipelineName = option.getValue();
+
+            // The stages of a batch are made for every file when it is its turn
+            if (!isBatch) {
+                RC tmp = build(inputFiles.get(0), outputFiles.get(0));
                 if (!tmp.isSuccess())
                     return tmp;
             }
 
-            tmp = Executors.get(Executors.size() - 1).setConsumer(Writer);
+            IsInited = true;
+            return RC_SUCCESS;
+        }
+        return code;
+    }
+
+    // Adds the pair of files. A glob in the name of the input file adds a pair for every matched file
+    private RC addFiles(String input, String output) {
+        File file = new File(input);
+        String name = file.getName();
+        if (name.indexOf('*') < 0 && name.indexOf('?') < 0) {
+            inputFiles.add(input);
+            outputFiles.add(output.replace("*", name));
+            return RC_SUCCESS;
+        }
+
+        isBatch = true;
+        // The output file of every matched file must differ
+        if (output.indexOf('*') < 0)
+            return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                    + ManagerGrammarMy.ConfigParams.OUTPUT_FILE.asString() + " must contain * for the files " + input);
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        ArrayList<Path> matched = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory.toPath(), name)) {
+            for (Path path : files)
+                if (Files.isRegularFile(path))
+                    matched.add(path);
+        } catch (IOException | RuntimeException ex) { // The directory cannot be read or the glob is incorrect
+            return RC_MANAGER_INVALID_INPUT_FILE;
+        }
+        if (matched.isEmpty())
+            return new RC(RCWho.MANAGER, RCType.CODE_INVALID_INPUT_FILE, "No input file matches " + input);
+
+        Collections.sort(matched);
+        String parent = file.getParent();
+        for (Path path : matched) {
+            String matchedName = path.getFileName().toString();
+            inputFiles.add(parent == null ? matchedName : new File(parent, matchedName).getPath());
+            outputFiles.add(output.replace("*", matchedName));
+        }
+        return RC_SUCCESS;
+    }
+
+    // Makes the stages of one pipeline, sets their configs and connects them with the files
+    private RC build(String input, String output) {
+        inputFile = input;
+        // Open files
+        try {
+            FileIn = new FileInputStream(input);
+        } catch (FileNotFoundException e) { // Input file not found
+            return RC_MANAGER_INVALID_INPUT_FILE;
+        }
+
+        try {
+            FileOut = new FileOutputStream(output);
+        } catch (FileNotFoundException e) { // Output file not found
+            return RC_MANAGER_INVALID_OUTPUT_FILE;
+        }
+
+        // Make all stages
+        try {
+            Reader = (IReader) readerClass.getDeclaredConstructor().newInstance();
+        }
+        catch (Exception e) { // The class cannot be instantiated
+            return RC_MANAGER_INVALID_READER_CLASS;
+        }
+
+        try {
+            for (int i = 0; i < executorClasses.size(); i++) {
+                Class<?> executor = executorClasses.get(i);
+                if (replicas.get(i) == 1) {
+                    Executors.add((IExecutor) executor.getDeclaredConstructor().newInstance());
+                    continue;
+                }
+                IReplicableExecutor[] group = new IReplicableExecutor[replicas.get(i)];
+                for (int j = 0; j < group.length; j++)
+                    group[j] = (IReplicableExecutor) executor.getDeclaredConstructor().newInstance();
+                Executors.add(new ReplicaGroup(group));
+            }
+        }
+        catch (Exception e) { // The class cannot be instantiated
+            return RC_MANAGER_INVALID_EXECUTOR_CLASS;
+        }
+
+        try {
+            Writer = (IWriter) writerClass.getDeclaredConstructor().newInstance();
+        }
+        catch (Exception e) { // The class cannot be instantiated
+            return RC_MANAGER_INVALID_WRITER_CLASS;
+        }
+
+        // Set all configurations
+        RC tmp = Reader.setConfig(readerConfig);
+        if (!tmp.isSuccess())
+            return tmp;
+
+        int i = 0;
+        for(IExecutor executor: Executors) {
+            tmp = executor.setConfig(executorConfigs.get(i++));
             if (!tmp.isSuccess())
                 return tmp;
+        }
 
-            tmp = Writer.setOutputStream(FileOut);
+        tmp = Writer.setConfig(writerConfig);
+        if (!tmp.isSuccess())
+            return tmp;
+
+        // The credits of the manager replace the defaults of the stages
+        if (creditBytes > 0)
+            for (Runnable stage : getStages())
+                if (stage instanceof ICreditedProvider)
+                    ((ICreditedProvider) stage).setDefaultCredits(creditBytes);
+
+        // The fused executors are monitored one by one
+        Runnable[] monitoredStages = getStages();
+        if (isFused)
+            fuseExecutors();
+
+        // Build a pipeline from the specified elements
+        // A reader that works with the file itself gets its channel instead of the stream
+        if (Reader instanceof IChannelReader)
+            tmp = ((IChannelReader) Reader).setInputChannel(FileIn.getChannel());
+        else
+            tmp = Reader.setInputStream(FileIn);
+        if (!tmp.isSuccess())
+            return tmp;
+
+        tmp = Reader.setConsumer(Executors.get(0));
+        if (!tmp.isSuccess())
+            return tmp;
+
+        for(int j = 0; j < Executors.size() - 1; ++j){
+            tmp = Executors.get(j).setConsumer(Executors.get(j + 1));
             if (!tmp.isSuccess())
                 return tmp;
+        }
 
-            IsInited = true;
-            return RC_SUCCESS;
+        tmp = Executors.get(Executors.size() - 1).setConsumer(Writer);
+        if (!tmp.isSuccess())
+            return tmp;
+
+        // A writer that works with the file itself gets its channel instead of the stream
+        if (Writer instanceof IChannelWriter)
+            tmp = ((IChannelWriter) Writer).setOutputChannel(FileOut.getChannel());
+        else
+            tmp = Writer.setOutputStream(FileOut);
+        if (!tmp.isSuccess())
+            return tmp;
+
+        if (!monitor.register(pipelineName, inputFile, monitoredStages) && logger != null)
+            logger.warning("The stages of " + pipelineName + " for " + inputFile + " are not all registered as MBeans");
+        return RC_SUCCESS;
+    }
+
+    // Replaces every chain of adjacent fusible executors by one stage
+    private void fuseExecutors() {
+        ArrayList<IExecutor> fused = new ArrayList<>();
+        ArrayList<IFusibleExecutor> chain = new ArrayList<>();
+        for (IExecutor executor : Executors) {
+            if (executor instanceof IFusibleExecutor) {
+                chain.add((IFusibleExecutor) executor);
+                continue;
+            }
+            addChain(fused, chain);
+            fused.add(executor);
         }
-        return code;
+        addChain(fused, chain);
+        Executors = fused;
+    }
+
+    private static void addChain(ArrayList<IExecutor> executors, ArrayList<IFusibleExecutor> chain) {
+        if (chain.size() == 1)
+            executors.add(chain.get(0));
+        else if (chain.size() > 1)
+            executors.add(new FusedChain(chain.toArray(new IFusibleExecutor[0])));
+        chain.clear();
     }
 
     static final String logFileName = "log.txt";
@@ -247,37 +551,53 @@ public class Manager implements IConfigurable {
         return logger;
     }
 
+    private void closeFiles() {
+        try {
+            if (FileIn != null)
+                FileIn.close();
+            if (FileOut != null)
+                FileOut.close();
+        } catch (IOException e) {
+            handleRC(new RC(RC.RCWho.MANAGER, RC.RCType.CODE_CUSTOM_ERROR, "ERROR: Manager: cannot even close files"));
+        }
+    }
+
     public boolean execute() {
         if (!IsInited) {
             handleRC(new RC(RCWho.MANAGER, RCType.CODE_CUSTOM_ERROR, "Class not initialized"));
             return false;
         }
-        Thread ReaderThread = new Thread(Reader, "Reader");
-        Thread[] ExecutorThreads = new Thread[Executors.size()];
-        for (int i = 0; i < Executors.size(); i++)
-            ExecutorThreads[i] = new Thread(Executors.get(i), "Executor");
-        Thread WriterThread = new Thread(Writer, "Writer");
+        if (isBatch)
+            return executeBatch();
+        return executePipeline();
+    }
 
-        ReaderThread.start();
-        for (int i = 0; i < Executors.size(); i++)
-            ExecutorThreads[i].start();
-        WriterThread.start();
+    // Runs the stages of the built pipeline and waits for them
+    private boolean executePipeline() {
+        Runnable[] stages = getStages();
+        Thread[] StageThreads = new Thread[stages.length];
+        ThreadFactory executorThreads = threadMode.factory("Executor");
+        StageThreads[0] = threadMode.factory("Reader").newThread(Reader);
+        for (int i = 1; i < stages.length - 1; i++)
+            StageThreads[i] = executorThreads.newThread(stages[i]);
+        StageThreads[stages.length - 1] = threadMode.factory("Writer").newThread(Writer);
+
+        for (Thread thread : StageThreads)
+            thread.start();
 
         try {
-            ReaderThread.join();
-            for (int i = 0; i < Executors.size(); i++)
-                ExecutorThreads[i].join();
-            WriterThread.join();
+            for (Thread thread : StageThreads)
+                thread.join();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        return finishPipeline();
+    }
 
-        try {
-            FileIn.close();
-            FileOut.close();
-        } catch (IOException e) {
-            handleRC(new RC(RC.RCWho.MANAGER, RC.RCType.CODE_CUSTOM_ERROR, "ERROR: Manager: cannot even close files"));
-        }
+    // Closes the files of the pipeline whose stages have ended and reports their errors
+    private boolean finishPipeline() {
+        closeFiles();
+        monitor.unregister();
 
         boolean isAnyError = false;
         if (!Reader.getCurrentState().isSuccess()) {
@@ -293,10 +613,129 @@ public class Manager implements IConfigurable {
             handleRC(Writer.getCurrentState());
             isAnyError = true;
         }
+        else if (Writer instanceof IChannelWriter && logger != null)
+            logger.info(String.format("Writer: %d bytes, %.1f bytes/s", ((IChannelWriter) Writer).getBytesWritten(),
+                    ((IChannelWriter) Writer).getBytesPerSecond()));
 
         return !isAnyError;
     }
 
+    // The stages of the built pipeline in their order, every replica of an executor is a stage of its own
+    private Runnable[] getStages() {
+        ArrayList<Runnable> stages = new ArrayList<>();
+        stages.add(Reader);
+        for (IExecutor executor : Executors)
+            if (executor instanceof ReplicaGroup)
+                Collections.addAll(stages, ((ReplicaGroup) executor).getStages());
+            else
+                stages.add(executor);
+        stages.add(Writer);
+        return stages.toArray(new Runnable[0]);
+    }
+
+    // The bytes the buffers of the built pipeline take at most
+    private long getBufferedBytes() {
+        long bytes = 0;
+        for (Runnable stage : getStages())
+            if (stage instanceof IBufferedStage)
+                bytes += ((IBufferedStage) stage).getMaxBufferedBytes();
+        return bytes;
+    }
+
+    // Codes the files of the batch by the scheduler, at most 'workers' of them at once. A file that fails does not
+    // stop the others, an error of the stage configs stops the batch, since every file would fail the same way
+    private boolean executeBatch() {
+        AtomicInteger done = new AtomicInteger();
+        AtomicLong bytesIn = new AtomicLong();
+        AtomicLong bytesOut = new AtomicLong();
+        AtomicBoolean isStopped = new AtomicBoolean(false);
+
+        // One file of the batch, its stages are made when the scheduler admits it
+        class FileJob implements PipelineScheduler.Pipeline {
+            private final int file;
+            private final Manager job = new Manager(Manager.this);
+            private RC rc;                                // The result of build, null if the file is skipped
+            private long start;
+
+            FileJob(int file) {
+                this.file = file;
+            }
+
+            @Override
+            public boolean prepare() {
+                if (isStopped.get())
+                    return false;
+                start = System.nanoTime();
+                rc = job.build(inputFiles.get(file), outputFiles.get(file));
+                return rc.isSuccess();
+            }
+
+            @Override
+            public Runnable[] getStages() {
+                return job.getStages();
+            }
+
+            @Override
+            public long getBufferedBytes() {
+                return job.getBufferedBytes();
+            }
+
+            @Override
+            public void finish() {
+                if (rc == null)
+                    return;
+                boolean isSuccess;
+                if (rc.isSuccess())
+                    isSuccess = job.finishPipeline();
+                else {
+                    isSuccess = handleRC(rc);
+                    job.closeFiles();
+                    if (rc.type != RCType.CODE_INVALID_INPUT_FILE && rc.type != RCType.CODE_INVALID_OUTPUT_FILE)
+                        isStopped.set(true);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                long in = new File(inputFiles.get(file)).length();
+                long out = new File(outputFiles.get(file)).length();
+                if (isSuccess) {
+                    done.incrementAndGet();
+                    bytesIn.addAndGet(in);
+                    bytesOut.addAndGet(out);
+                }
+                if (logger != null)
+                    logger.info(String.format("%s -> %s: %s, %d -> %d bytes, %.3f s, %.2f MB/s",
+                            inputFiles.get(file), outputFiles.get(file), isSuccess ? "done" : "failed", in, out,
+                            seconds, in / MB / seconds));
+            }
+        }
+
+        long start = System.nanoTime();
+        PipelineScheduler scheduler = new PipelineScheduler(workers, memoryLimit, threadMode);
+        try {
+            for (int file = 0; file < inputFiles.size() && !isStopped.get(); file++)
+                scheduler.submit(new FileJob(file));
+            scheduler.awaitAll();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } finally {
+            scheduler.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        batchSummary = String.format("Batch: %d of %d file(s) done, up to %d at once with %.1f MB of buffers, "
+                        + "%d -> %d bytes, %.3f s, %.1f files/s, %.2f MB/s", done.get(), inputFiles.size(),
+                scheduler.getPeakRunning(), scheduler.getPeakReservedBytes() / MB, bytesIn.get(), bytesOut.get(),
+                seconds, done.get() / seconds, bytesIn.get() / MB / seconds);
+        if (logger != null)
+            logger.info(batchSummary);
+        return done.get() == inputFiles.size();
+    }
+
+    // Returns the aggregate report of the last batch or null if no batch has been run
+    public String getBatchSummary() {
+        return batchSummary;
+    }
+
     public static void main(String[] args) {
         logger = makeLogger();
 
@@ -308,7 +747,11 @@ public class Manager implements IConfigurable {
 
         Manager manager = new Manager();
         if (handleRC(manager.setConfig(args[0]))) {
-            if (manager.execute()) {
+            boolean isSuccess = manager.execute();
+            logger.info(BufferPool.SHARED.statistics());
+            if (manager.getBatchSummary() != null)
+                System.out.println(manager.getBatchSummary());
+            if (isSuccess) {
                 System.out.println("Success!");
                 return;
             }
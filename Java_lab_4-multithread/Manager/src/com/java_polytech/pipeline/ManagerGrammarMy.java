@@ -6,24 +6,53 @@ import com.java_polytech.config_support.MyIGrammar;
 public class ManagerGrammarMy implements MyIGrammar {
     // The enum containing the manager's grammar fields
     public enum ConfigParams {
+        // May be set several times, the i-th input goes to the i-th output. A glob in the name of the file,
+        // e.g. testFiles/*.txt, makes a batch of all the files that match it
         INPUT_FILE("INPUT_FILE"),
+        // A '*' is replaced by the name of the input file
         OUTPUT_FILE("OUTPUT_FILE"),
         READER_NAME("READER_NAME"),
         WRITER_NAME("WRITER_NAME"),
         EXECUTOR_NAME("EXECUTOR_NAME"),
         READER_CONFIG("READER_CONFIG"),
         WRITER_CONFIG("WRITER_CONFIG"),
-        EXECUTOR_CONFIG("EXECUTOR_CONFIG");
+        EXECUTOR_CONFIG("EXECUTOR_CONFIG"),
+        // Number of the pipelines of a batch that run at once in one JVM
+        WORKERS("WORKERS", true),
+        // Bytes that the buffers of the pipelines running at once may take, see PipelineScheduler
+        MEMORY_LIMIT("MEMORY_LIMIT", true),
+        // VIRTUAL runs the stages on virtual threads instead of platform ones, see ThreadMode
+        THREADS("THREADS", true),
+        // Bounds the bytes waiting between two stages whose own config does not bound them, see ICreditedProvider
+        CREDIT_BYTES("CREDIT_BYTES", true),
+        // Set once for every executor, the i-th value for the i-th one: a replicable executor runs as several
+        // replicas side by side that keep the order of the packets, see ReplicaGroup
+        REPLICAS("REPLICAS", true),
+        // TRUE runs every chain of adjacent fusible executors on one thread, see FusedChain
+        FUSION("FUSION", true),
+        // Names the MBeans of the stage counters together with the input file, by default the name of the config
+        // file, see PipelineMonitor
+        PIPELINE_NAME("PIPELINE_NAME", true);
 
         private final String parameter;
+        private final boolean optional;  // Whether the field may be omitted in the config file
 
         ConfigParams(String param) {
+            this(param, false);
+        }
+
+        ConfigParams(String param, boolean isOptional) {
             parameter = param;
+            optional = isOptional;
         }
 
         public String asString() {
             return parameter;
         }
+
+        public boolean isOptional() {
+            return optional;
+        }
     }
 
     static private final String DELIMITER = "\\s*=\\s*"; // Delimiter between the field name and value
@@ -51,4 +80,21 @@ public class ManagerGrammarMy implements MyIGrammar {
     public int numberOfFields() {
         return ConfigParams.values().length;
     }
+
+    @Override
+    public boolean isOptionalKey(String s) {
+        for (ConfigParams prefix : ConfigParams.values())
+            if (s.equals(prefix.asString()))
+                return prefix.isOptional();
+        return false;
+    }
+
+    @Override
+    public int numberOfOptionalFields() {
+        int count = 0;
+        for (ConfigParams prefix : ConfigParams.values())
+            if (prefix.isOptional())
+                count++;
+        return count;
+    }
 }
@@ -0,0 +1,125 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.IMonitoredStage;
+import com.java_polytech.pipeline_interfaces.StageStats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+// Publishes the counters of the stages of one pipeline as MBeans of the platform MBean server while it runs.
+// A stage is named com.java_polytech.pipeline:type=Stage,pipeline="<name>",file="<input file>",stage=<n>-<class>,
+// where n is its place in the pipeline counted from the reader, so a JMX client can read them from a running job.
+// Only the stages that implement IMonitoredStage are published, an executor that codes also has CompressionRatio
+class PipelineMonitor {
+    static private final String DOMAIN = "com.java_polytech.pipeline";
+
+    private final ArrayList<ObjectName> names = new ArrayList<>();
+
+    // The MBean of one stage
+    private static class StageMonitor implements CodingStageMonitorMBean {
+        private final String stageClass;
+        private final StageStats stats;
+
+        StageMonitor(String stageClass, StageStats stats) {
+            this.stageClass = stageClass;
+            this.stats = stats;
+        }
+
+        @Override
+        public String getStageClass() {
+            return stageClass;
+        }
+
+        @Override
+        public long getPacketsIn() {
+            return stats.getPacketsIn();
+        }
+
+        @Override
+        public long getBytesIn() {
+            return stats.getBytesIn();
+        }
+
+        @Override
+        public long getPacketsOut() {
+            return stats.getPacketsOut();
+        }
+
+        @Override
+        public long getBytesOut() {
+            return stats.getBytesOut();
+        }
+
+        @Override
+        public long getUpstreamWaitNanos() {
+            return stats.getUpstreamWaitNanos();
+        }
+
+        @Override
+        public long getBackpressureWaitNanos() {
+            return stats.getBackpressureWaitNanos();
+        }
+
+        @Override
+        public int getInputQueueDepth() {
+            return stats.getInputQueueDepth();
+        }
+
+        @Override
+        public int getOutputQueueDepth() {
+            return stats.getOutputQueueDepth();
+        }
+
+        @Override
+        public long getCpuTimeNanos() {
+            return stats.getCpuNanos();
+        }
+
+        @Override
+        public double getCompressionRatio() {
+            return stats.getCompressionRatio();
+        }
+    }
+
+    // Registers the stages in their order. Returns false if some of them could not be registered, e.g. because
+    // another pipeline with the same name and file is running; the pipeline runs anyway
+    boolean register(String pipeline, String file, Runnable[] stages) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        boolean isRegistered = true;
+        for (int i = 0; i < stages.length; i++) {
+            if (!(stages[i] instanceof IMonitoredStage))
+                continue;
+            StageStats stats = ((IMonitoredStage) stages[i]).getStats();
+            String stageClass = stages[i].getClass().getSimpleName();
+            StageMonitor monitor = new StageMonitor(stages[i].getClass().getName(), stats);
+            try {
+                ObjectName name = new ObjectName(DOMAIN + ":type=Stage,pipeline=" + ObjectName.quote(pipeline)
+                        + ",file=" + ObjectName.quote(file) + ",stage=" + i + "-" + stageClass);
+                StandardMBean bean = stats.isCoding()
+                        ? new StandardMBean(monitor, CodingStageMonitorMBean.class)
+                        : new StandardMBean(monitor, StageMonitorMBean.class);
+                server.registerMBean(bean, name);
+                names.add(name);
+            } catch (JMException ex) {
+                isRegistered = false;
+            }
+        }
+        return isRegistered;
+    }
+
+    void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : names) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ex) {
+                // Already unregistered
+            }
+        }
+        names.clear();
+    }
+}
@@ -0,0 +1,169 @@
+package com.java_polytech.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs many independent pipelines at once on shared threads.
+// A pipeline is admitted when fewer than 'slots' pipelines run and its buffers fit into the memory limit together
+// with the buffers of the running ones; a pipeline larger than the limit waits until nothing else holds memory.
+// The pipelines are admitted strictly in the order they were submitted, so a large pipeline is not overtaken forever
+// by small ones, and an admitted pipeline has a thread for every stage, so a busy pipeline does not slow down the
+// others beyond sharing the processors.
+// The stages block while they wait for packets, so they cannot take turns on a fixed number of threads: the number
+// of running pipelines is bounded instead, and the threads of the finished stages are kept and given to the stages
+// of the next pipelines rather than started for every pipeline. Virtual threads are cheap to start and take no OS
+// thread while they wait, so in the VIRTUAL mode every stage simply gets a new one
+class PipelineScheduler {
+    // A pipeline the scheduler runs
+    interface Pipeline {
+        // Makes the stages when the pipeline is admitted. Returns false if it cannot run, then it is not started
+        boolean prepare();
+
+        Runnable[] getStages();
+
+        // The bytes the buffers of the stages take at most while they run
+        long getBufferedBytes();
+
+        // Called once after all stages have ended or after prepare has failed
+        void finish();
+    }
+
+    static private final long KEEP_ALIVE_SECONDS = 60; // An idle thread of the pool ends after this time
+
+    private final int slots;                     // The number of pipelines that run at once at most
+    private final long memoryLimit;              // The bytes the buffers of the running pipelines take at most
+    private final ArrayBlockingQueue<Pipeline> waiting;
+    private final Executor threads;              // Runs every stage on its own thread
+    private final ExecutorService pool;          // The pool of the platform threads, null in the VIRTUAL mode
+    private final Thread dispatcher;
+
+    private int running = 0;                     // Admitted pipelines that have not finished
+    private long reservedBytes = 0;              // The buffers of the running pipelines
+    private int unfinished = 0;                  // Submitted pipelines that have not finished
+    private int peakRunning = 0;
+    private long peakReservedBytes = 0;
+
+    PipelineScheduler(int slots, long memoryLimit, ThreadMode mode) {
+        this.slots = slots;
+        this.memoryLimit = memoryLimit;
+        // The submitters wait in turn while the queue is full
+        waiting = new ArrayBlockingQueue<>(slots, true);
+        ThreadFactory factory = mode.factory("Stage");
+        if (mode.isVirtual()) {
+            pool = null;
+            threads = runnable -> factory.newThread(runnable).start();
+        } else {
+            pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), runnable -> {
+                        Thread thread = factory.newThread(runnable);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            threads = pool;
+        }
+        dispatcher = new Thread(this::dispatch, "Scheduler");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    // Queues the pipeline, waits while 'slots' pipelines are already waiting
+    void submit(Pipeline pipeline) throws InterruptedException {
+        synchronized (this) {
+            unfinished++;
+        }
+        try {
+            waiting.put(pipeline);
+        } catch (InterruptedException ex) {
+            synchronized (this) {
+                unfinished--;
+                notifyAll();
+            }
+            throw ex;
+        }
+    }
+
+    // Waits until every submitted pipeline has finished
+    synchronized void awaitAll() throws InterruptedException {
+        while (unfinished > 0)
+            wait();
+    }
+
+    // Stops the threads, the submitted pipelines must have finished
+    void shutdown() {
+        dispatcher.interrupt();
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    synchronized int getPeakRunning() {
+        return peakRunning;
+    }
+
+    synchronized long getPeakReservedBytes() {
+        return peakReservedBytes;
+    }
+
+    // Admits the waiting pipelines one by one in their order
+    private void dispatch() {
+        try {
+            while (true) {
+                Pipeline pipeline = waiting.take();
+                synchronized (this) {
+                    while (running == slots)
+                        wait();
+                    running++;
+                }
+                if (!pipeline.prepare()) {
+                    end(pipeline, 0);
+                    continue;
+                }
+
+                long bytes = pipeline.getBufferedBytes();
+                synchronized (this) {
+                    while (reservedBytes > 0 && reservedBytes + bytes > memoryLimit)
+                        wait();
+                    reservedBytes += bytes;
+                    peakRunning = Math.max(peakRunning, running);
+                    peakReservedBytes = Math.max(peakReservedBytes, reservedBytes);
+                }
+                start(pipeline, bytes);
+            }
+        } catch (InterruptedException ex) {
+            // Stopped by shutdown
+        }
+    }
+
+    // Gives every stage a thread, the last stage to end finishes the pipeline
+    private void start(Pipeline pipeline, long bytes) {
+        Runnable[] stages = pipeline.getStages();
+        AtomicInteger left = new AtomicInteger(stages.length);
+        for (Runnable stage : stages)
+            threads.execute(() -> {
+                try {
+                    stage.run();
+                } finally {
+                    if (left.decrementAndGet() == 0)
+                        end(pipeline, bytes);
+                }
+            });
+    }
+
+    private void end(Pipeline pipeline, long bytes) {
+        try {
+            pipeline.finish();
+        } finally {
+            synchronized (this) {
+                running--;
+                reservedBytes -= bytes;
+                unfinished--;
+                notifyAll();
+            }
+        }
+    }
+}
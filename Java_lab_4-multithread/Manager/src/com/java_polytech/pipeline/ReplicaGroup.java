@@ -0,0 +1,196 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.pipeline_interfaces.*;
+
+import java.util.IdentityHashMap;
+
+import static com.java_polytech.pipeline_interfaces.RC.*;
+
+// Several replicas of a replicable executor that stand in the pipeline as one stage.
+// The packets of the provider are dealt out to the replicas in turn: the packet k goes to the replica k % n, which
+// takes it from the provider itself. The replicas announce their packets to the group, and the group announces them
+// to the consumer in the order of their numbers, so the consumer gets the same packets as from a single instance.
+// The manager runs every replica on a thread of its own and sets their credits itself, see getStages
+class ReplicaGroup implements IExecutor {
+    private final IReplicableExecutor[] replicas;
+    private final long[] announced;            // The last packet announced by every replica
+    private final boolean[] isEnded;           // Whether the replica has announced the end of file
+    private int endedReplicas = 0;
+    private long nextPacket = 0;               // The packet to announce to the consumer next
+    private boolean isEndAnnounced = false;
+    private IConsumer Next;
+    private RC CurrentState = RC_SUCCESS;      // Errors of the merge, the replicas keep their own
+
+    ReplicaGroup(IReplicableExecutor[] replicas) {
+        this.replicas = replicas;
+        announced = new long[replicas.length];
+        isEnded = new boolean[replicas.length];
+        for (int i = 0; i < replicas.length; i++)
+            announced[i] = IConsumer.END_OF_FILE_PACKET_NUMBER;
+    }
+
+    // The replicas, every one of them is a stage of its own
+    Runnable[] getStages() {
+        return replicas.clone();
+    }
+
+    private int replicaOf(long packet_number) {
+        return (int)(packet_number % replicas.length);
+    }
+
+    // Takes the packets of the replica
+    private class Port implements IConsumer {
+        private final int replica;
+
+        Port(int replica) {
+            this.replica = replica;
+        }
+
+        @Override
+        public RC setProvider(IProvider provider) {
+            return RC_SUCCESS;
+        }
+
+        @Override
+        public RC consume(long packet_number) {
+            return announce(replica, packet_number);
+        }
+    }
+
+    // Passes on the packets whose turn has come, and the end of file after all replicas have ended
+    private synchronized RC announce(int replica, long packet_number) {
+        if (packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER) {
+            if (!isEnded[replica]) {
+                isEnded[replica] = true;
+                endedReplicas++;
+            }
+        }
+        else
+            announced[replica] = packet_number;
+
+        RC rc = RC_SUCCESS;
+        while (rc.isSuccess() && announced[replicaOf(nextPacket)] >= nextPacket)
+            rc = Next.consume(nextPacket++);
+
+        if (endedReplicas == replicas.length && !isEndAnnounced) {
+            isEndAnnounced = true;
+            // A replica that has failed leaves a gap, its own state tells the error
+            RC endRC = Next.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
+            if (rc.isSuccess())
+                rc = endRC;
+        }
+        return rc;
+    }
+
+    @Override
+    public RC setConfig(String str) {
+        for (IReplicableExecutor replica : replicas) {
+            RC rc = replica.setConfig(str);
+            if (!rc.isSuccess())
+                return rc;
+            if (!replica.isReplicable())
+                return new RC(RCWho.MANAGER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The config " + str
+                        + " does not make the executor replicable");
+        }
+        return RC_SUCCESS;
+    }
+
+    @Override
+    public RC setProvider(IProvider provider) {
+        for (IReplicableExecutor replica : replicas) {
+            RC rc = replica.setProvider(provider);
+            if (!rc.isSuccess())
+                return rc;
+        }
+        return RC_SUCCESS;
+    }
+
+    @Override
+    public RC setConsumer(IConsumer consumer) {
+        Next = consumer;
+        for (int i = 0; i < replicas.length; i++) {
+            RC rc = replicas[i].setConsumer(new Port(i));
+            if (!rc.isSuccess())
+                return rc;
+        }
+        return consumer.setProvider(this);
+    }
+
+    @Override
+    public RC consume(long packet_number) {
+        if (packet_number != IConsumer.END_OF_FILE_PACKET_NUMBER)
+            return replicas[replicaOf(packet_number)].consume(packet_number);
+        RC result = RC_SUCCESS;
+        for (IReplicableExecutor replica : replicas) {
+            RC rc = replica.consume(packet_number);
+            if (result.isSuccess())
+                result = rc;
+        }
+        return result;
+    }
+
+    @Override
+    public TYPE[] getOutputTypes() {
+        return replicas[0].getOutputTypes();
+    }
+
+    @Override
+    public IMediator getMediator(TYPE chosenType) {
+        IMediator[] mediators = new IMediator[replicas.length];
+        for (int i = 0; i < replicas.length; i++) {
+            mediators[i] = replicas[i].getMediator(chosenType);
+            if (mediators[i] == null)
+                return null;
+        }
+        return new IMediator() {
+            // The replica every packet held by the consumer has come from
+            private final IdentityHashMap<Object, IMediator> owners = new IdentityHashMap<>();
+
+            @Override
+            public Object getData(long packet_number) {
+                // All replicas have ended by the end of file
+                if (packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER)
+                    return null;
+                IMediator mediator = mediators[replicaOf(packet_number)];
+                Object data = mediator.getData(packet_number);
+                if (data != null)
+                    synchronized (owners) {
+                        owners.put(data, mediator);
+                    }
+                return data;
+            }
+
+            @Override
+            public void release(Object data) {
+                IMediator mediator;
+                synchronized (owners) {
+                    mediator = owners.remove(data);
+                }
+                if (mediator != null)
+                    mediator.release(data);
+            }
+
+            @Override
+            public void cancel() {
+                for (IMediator mediator : mediators)
+                    mediator.cancel();
+            }
+        };
+    }
+
+    @Override
+    public RC getCurrentState() {
+        for (IReplicableExecutor replica : replicas)
+            if (!replica.getCurrentState().isSuccess())
+                return replica.getCurrentState();
+        return CurrentState;
+    }
+
+    // The group is not a stage itself: the manager runs the replicas from getStages on its own threads.
+    // Running the group is a mistake of the caller, so it only fails
+    @Override
+    public void run() {
+        CurrentState = new RC(RCWho.MANAGER, RCType.CODE_CUSTOM_ERROR, "The replicas are run by the manager, "
+                + "not by their group");
+    }
+}
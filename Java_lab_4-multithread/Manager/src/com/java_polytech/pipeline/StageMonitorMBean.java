@@ -0,0 +1,25 @@
+package com.java_polytech.pipeline;
+
+// The counters of a stage of a running pipeline, see StageStats. The times are in nanoseconds
+public interface StageMonitorMBean {
+    String getStageClass();
+
+    long getPacketsIn();
+
+    long getBytesIn();
+
+    long getPacketsOut();
+
+    long getBytesOut();
+
+    long getUpstreamWaitNanos();
+
+    long getBackpressureWaitNanos();
+
+    int getInputQueueDepth();
+
+    int getOutputQueueDepth();
+
+    // -1 if the JVM does not measure the CPU time of the thread of the stage
+    long getCpuTimeNanos();
+}
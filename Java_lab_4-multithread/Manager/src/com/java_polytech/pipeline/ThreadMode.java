@@ -0,0 +1,78 @@
+package com.java_polytech.pipeline;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+// The kind of threads the stages of a pipeline run on.
+// PLATFORM gives every stage its own thread of the OS. VIRTUAL runs the stages on virtual threads, which take no OS
+// thread while they wait for packets, so many chained executors and many pipelines at once cost a few carrier
+// threads. Virtual threads appeared in Java 21, they are reached by reflection so that the manager still runs on
+// Java 8; where they are absent VIRTUAL falls back to platform threads
+enum ThreadMode {
+    PLATFORM("PLATFORM"),
+    VIRTUAL("VIRTUAL"),
+    INCORRECT("INCORRECT");
+
+    private final String mode;
+    // Thread.ofVirtual and the methods of its builder, null if there are no virtual threads
+    static private final Method OF_VIRTUAL;
+    static private final Method NAME;
+    static private final Method FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            ofVirtual.invoke(null); // Fails if the virtual threads are a disabled preview feature
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            name = builderClass.getMethod("name", String.class);
+            factory = builderClass.getMethod("factory");
+        } catch (ReflectiveOperationException | RuntimeException ex) { // Older Java
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+    }
+
+    ThreadMode(String param) {
+        mode = param;
+    }
+
+    public String asString() {
+        return mode;
+    }
+
+    static ThreadMode ToEnum(String str) {
+        if (str.equalsIgnoreCase(PLATFORM.asString()))
+            return PLATFORM;
+        else if (str.equalsIgnoreCase(VIRTUAL.asString()))
+            return VIRTUAL;
+        else
+            return INCORRECT;
+    }
+
+    // Whether VIRTUAL really gives virtual threads in this JVM
+    static boolean isVirtualAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    // Whether the threads of the mode are virtual ones
+    boolean isVirtual() {
+        return this == VIRTUAL && isVirtualAvailable();
+    }
+
+    // Makes the threads of the stages, they get the name 'name'
+    ThreadFactory factory(String name) {
+        if (isVirtual()) {
+            try {
+                return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), name));
+            } catch (ReflectiveOperationException ex) {
+                // Falls back to the platform threads
+            }
+        }
+        return runnable -> new Thread(runnable, name);
+    }
+}
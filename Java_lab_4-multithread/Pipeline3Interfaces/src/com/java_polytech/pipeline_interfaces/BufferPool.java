@@ -0,0 +1,114 @@
+package com.java_polytech.pipeline_interfaces;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Pool of the byte arrays used for the packets, shared by all stages of the pipeline.
+// The requested size is rounded up to a size class: four classes between neighbouring powers of two,
+// so a leased array is at most 25% larger than asked. The returned arrays are kept while their
+// total size fits into the limit, the rest is left to the garbage collector.
+// The hits, misses and leased but not returned bytes are counted separately for every stage.
+public class BufferPool {
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 64L << 20;
+    public static final BufferPool SHARED = new BufferPool(DEFAULT_MAX_RETAINED_BYTES);
+
+    private static final int MIN_BITS = 4;                   // Arrays are at least 2^MIN_BITS bytes
+    private static final int MAX_BITS = 30;                  // Larger arrays are not pooled
+    private static final int STEPS = 4;                      // Number of classes between powers of two
+    private static final int STEP_BITS = 2;                  // log2(STEPS)
+    private static final int CLASS_COUNT = (MAX_BITS - MIN_BITS + 1) * STEPS;
+
+    private final long maxRetainedBytes;
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final ConcurrentLinkedQueue<byte[]>[] freeArrays;
+
+    private final AtomicLongArray hits = new AtomicLongArray(RC.RCWho.values().length);
+    private final AtomicLongArray misses = new AtomicLongArray(RC.RCWho.values().length);
+    private final AtomicLongArray bytesOutstanding = new AtomicLongArray(RC.RCWho.values().length);
+
+    @SuppressWarnings("unchecked")
+    public BufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        freeArrays = (ConcurrentLinkedQueue<byte[]>[]) new ConcurrentLinkedQueue<?>[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++)
+            freeArrays[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    // Index of the smallest class that holds size bytes, -1 if the size is not pooled
+    static int classOf(int size) {
+        if (size < 1 << MIN_BITS)
+            size = 1 << MIN_BITS;
+        int bits = 31 - Integer.numberOfLeadingZeros(size - 1); // The highest bit of size - 1
+        if (bits >= MAX_BITS)
+            return -1;
+        int step = ((size - 1) >>> (bits - STEP_BITS)) & (STEPS - 1);
+        return (bits + 1 - MIN_BITS) * STEPS + step - (STEPS - 1);
+    }
+
+    // Length of the arrays of the class
+    static int classLength(int sizeClass) {
+        int bits = (sizeClass + STEPS - 1) / STEPS + MIN_BITS - 1;
+        int step = (sizeClass + STEPS - 1) % STEPS;
+        return (STEPS + step + 1) << (bits - STEP_BITS);
+    }
+
+    // Gives an array of at least size bytes. Its contents are undefined
+    public byte[] lease(RC.RCWho who, int size) {
+        int sizeClass = classOf(size);
+        byte[] array = sizeClass < 0 ? null : freeArrays[sizeClass].poll();
+        if (array != null) {
+            retainedBytes.addAndGet(-array.length);
+            hits.incrementAndGet(who.ordinal());
+        } else {
+            array = new byte[sizeClass < 0 ? size : classLength(sizeClass)];
+            misses.incrementAndGet(who.ordinal());
+        }
+        bytesOutstanding.addAndGet(who.ordinal(), array.length);
+        return array;
+    }
+
+    // Takes back an array leased by the same stage. The caller must not touch it afterwards
+    public void release(RC.RCWho who, byte[] array) {
+        if (array == null)
+            return;
+        bytesOutstanding.addAndGet(who.ordinal(), -array.length);
+        int sizeClass = classOf(array.length);
+        if (sizeClass < 0 || classLength(sizeClass) != array.length)
+            return;
+        long retained;
+        do {
+            retained = retainedBytes.get();
+            if (retained + array.length > maxRetainedBytes)
+                return;
+        } while (!retainedBytes.compareAndSet(retained, retained + array.length));
+        freeArrays[sizeClass].offer(array);
+    }
+
+    public long getHits(RC.RCWho who) {
+        return hits.get(who.ordinal());
+    }
+
+    public long getMisses(RC.RCWho who) {
+        return misses.get(who.ordinal());
+    }
+
+    public long getBytesOutstanding(RC.RCWho who) {
+        return bytesOutstanding.get(who.ordinal());
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    // One line with the counters of every stage that used the pool
+    public String statistics() {
+        StringBuilder builder = new StringBuilder("Buffer pool: retained " + getRetainedBytes() + " bytes");
+        for (RC.RCWho who : RC.RCWho.values())
+            if (getHits(who) + getMisses(who) != 0)
+                builder.append("; ").append(who.get()).append(": hits ").append(getHits(who))
+                        .append(", misses ").append(getMisses(who))
+                        .append(", outstanding ").append(getBytesOutstanding(who)).append(" bytes");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,9 @@
+package com.java_polytech.pipeline_interfaces;
+
+// A stage that knows how many bytes its buffers take at most while it runs: its own buffers and the packets it has
+// published that the consumer has not taken yet. The manager adds them up to bound the memory of the pipelines it
+// runs at once. A stage that does not implement it is counted as keeping nothing, e.g. the reader that passes
+// slices of the mapped file
+public interface IBufferedStage {
+    long getMaxBufferedBytes();
+}
@@ -0,0 +1,9 @@
+package com.java_polytech.pipeline_interfaces;
+
+import java.nio.channels.FileChannel;
+
+// A reader that works with the input file itself rather than with a stream, e.g. to map it into memory.
+// The manager gives it the channel of the input file instead of calling setInputStream
+public interface IChannelReader extends IReader {
+    RC setInputChannel(FileChannel input);
+}
@@ -0,0 +1,15 @@
+package com.java_polytech.pipeline_interfaces;
+
+import java.nio.channels.FileChannel;
+
+// A writer that works with the output file itself rather than with a stream, e.g. to write several packets at once.
+// The manager gives it the channel of the output file instead of calling setOutputStream
+public interface IChannelWriter extends IWriter {
+    RC setOutputChannel(FileChannel output);
+
+    // The number of bytes written during the run
+    long getBytesWritten();
+
+    // The speed of the run from the first received packet to the end of writing
+    double getBytesPerSecond();
+}
@@ -0,0 +1,13 @@
+package com.java_polytech.pipeline_interfaces;
+
+// A provider whose packets wait for the consumer in a PacketChannel with a budget of credits in bytes.
+// Publishing a packet takes as many credits as it has bytes and the consumer gives them back when it takes the
+// packet, so the bytes waiting between the two stages never exceed the budget whatever the packet size.
+// The budget is set by the config of the stage or, if the config does not set it, by the manager
+public interface ICreditedProvider extends IProvider {
+    // Sets the budget unless the config of the stage has set its own, it is called after setConfig
+    void setDefaultCredits(int bytes);
+
+    // The budget of the channel to the consumer in bytes
+    int getCredits();
+}
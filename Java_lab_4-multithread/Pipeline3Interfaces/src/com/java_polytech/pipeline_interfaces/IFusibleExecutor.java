@@ -0,0 +1,10 @@
+package com.java_polytech.pipeline_interfaces;
+
+// An executor that the manager may run on the thread of the previous executor (FUSION in the manager config).
+// Instead of waiting for the announced packets in run, the fused executor codes every packet at once in step,
+// called on the thread that has announced it
+public interface IFusibleExecutor extends IExecutor {
+    // Codes the packet with the given number, the end of file finishes the stage.
+    // Returns false when the stage has ended: after the end of file or an error
+    boolean step(long packet_number);
+}
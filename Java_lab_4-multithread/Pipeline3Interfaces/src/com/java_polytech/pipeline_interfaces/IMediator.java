@@ -3,4 +3,13 @@ package com.java_polytech.pipeline_interfaces;
 public interface IMediator {
     // if result is NULL, then it is end and prepare for destroy
     Object getData(long packet_number);
+
+    // Returns the data received in the ownership transfer mode (TYPE.BYTE_BUFFER) to the provider for reuse.
+    // The consumer must not touch the data after that
+    default void release(Object data) {
+    }
+
+    // Tells the provider that the consumer has failed and will not ask for data anymore
+    default void cancel() {
+    }
 }
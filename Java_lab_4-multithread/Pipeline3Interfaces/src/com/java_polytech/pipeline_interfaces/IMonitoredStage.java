@@ -0,0 +1,6 @@
+package com.java_polytech.pipeline_interfaces;
+
+// A stage that counts its work while it runs, the manager publishes the counters as an MBean
+public interface IMonitoredStage {
+    StageStats getStats();
+}
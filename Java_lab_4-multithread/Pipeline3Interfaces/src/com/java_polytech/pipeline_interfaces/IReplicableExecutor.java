@@ -0,0 +1,9 @@
+package com.java_polytech.pipeline_interfaces;
+
+// An executor that the manager may run as several replicas side by side (REPLICAS in the manager config).
+// A replicable executor codes every input packet on its own: it keeps no state between the packets and publishes
+// exactly one packet for every input packet under the number of the input packet
+public interface IReplicableExecutor extends IExecutor {
+    // Whether the config has made the stage replicable
+    boolean isReplicable();
+}
@@ -0,0 +1,159 @@
+package com.java_polytech.pipeline_interfaces;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+// Bounded channel through which a provider hands its packets over to the consumer.
+// The consumer waiting for a packet is woken up exactly when the packet is published,
+// when the provider reaches the end of stream or when either side fails.
+// The packets are kept in a PacketStore, the lock is taken only when the consumer has to wait.
+// The channel is bounded by credits: publishing a packet takes its weight in credits, e.g. its size in bytes, and
+// the consumer gives them back when it takes the packet. A packet heavier than all credits waits for all of them,
+// so it passes alone. The weight of a packet must not change while it waits in the channel.
+// A packet belongs to the channel from a successful publish until it is received. The packets the channel drops
+// on failure are given to its release action, e.g. back to the BufferPool they were leased from
+public class PacketChannel<T> {
+    private int credits;                                   // Maximum weight of the packets waiting for the consumer
+    private final ToIntFunction<T> weight;
+    private final Consumer<? super T> release;             // Takes the packets dropped by the channel
+    private final PacketStore<T> packets = new PacketStore<>();
+    private Semaphore freeCredits;                         // Credits not taken by the waiting packets
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private volatile int waiters = 0;                      // Number of consumers waiting for a packet
+    private volatile boolean isClosed = false;             // No more packets will be published
+    private volatile RC state = RC.RC_SUCCESS;             // The first error reported by either side
+    private final AtomicLong blockedNanos = new AtomicLong(); // Time publish has waited for credits
+
+    // The channel of at most 'capacity' packets
+    public PacketChannel(int capacity) {
+        this(capacity, packet -> 1);
+    }
+
+    public PacketChannel(int credits, ToIntFunction<T> weight) {
+        this(credits, weight, packet -> { });
+    }
+
+    public PacketChannel(int credits, ToIntFunction<T> weight, Consumer<? super T> release) {
+        this.credits = credits;
+        this.weight = weight;
+        this.release = release;
+        freeCredits = new Semaphore(credits);
+    }
+
+    // Changes the number of credits, it may be done only before the first packet is published
+    public void setCredits(int credits) {
+        this.credits = credits;
+        freeCredits = new Semaphore(credits);
+    }
+
+    public int getCredits() {
+        return credits;
+    }
+
+    // The credits the packet takes
+    private int cost(T data) {
+        return Math.max(1, Math.min(weight.applyAsInt(data), credits));
+    }
+
+    // Waits for enough credits and publishes the packet.
+    // Returns false if the channel is closed or failed, then the packet still belongs to the caller
+    public boolean publish(long packet_number, T data) {
+        int cost = cost(data);
+        if (!freeCredits.tryAcquire(cost)) {
+            long start = System.nanoTime();
+            try {
+                freeCredits.acquire(cost);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                blockedNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+        if (isClosed || !state.isSuccess()) {
+            freeCredits.release(cost);
+            return false;
+        }
+        packets.put(packet_number, data);
+        // The channel has failed meanwhile, nobody will take the packet. If fail has already dropped it,
+        // it is released, and the packet counts as published
+        if (!state.isSuccess() && packets.remove(packet_number) != null)
+            return false;
+        if (waiters > 0)
+            wakeUp();
+        return true;
+    }
+
+    // Waits for the packet and removes it from the channel.
+    // Returns null if the channel is closed without such a packet or failed
+    public T receive(long packet_number) {
+        T data = packets.remove(packet_number);
+        if (data == null) {
+            lock.lock();
+            try {
+                waiters++;
+                while ((data = packets.remove(packet_number)) == null && !isClosed && state.isSuccess())
+                    published.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiters--;
+                lock.unlock();
+            }
+        }
+        if (data == null)
+            return null;
+        freeCredits.release(cost(data));
+        if (state.isSuccess())
+            return data;
+        release.accept(data);
+        return null;
+    }
+
+    // Marks the end of stream: the packets already published can still be received
+    public void close() {
+        isClosed = true;
+        wakeUp();
+    }
+
+    // Reports an error: both sides stop waiting and the remaining packets are dropped and released
+    public void fail(RC error) {
+        lock.lock();
+        try {
+            if (state.isSuccess())
+                state = error;
+        } finally {
+            lock.unlock();
+        }
+        packets.drain(release);
+        wakeUp();
+        freeCredits.release(credits);
+    }
+
+    public RC getState() {
+        return state;
+    }
+
+    // The number of published packets the consumer has not taken yet
+    public int size() {
+        return packets.size();
+    }
+
+    public long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+    private void wakeUp() {
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
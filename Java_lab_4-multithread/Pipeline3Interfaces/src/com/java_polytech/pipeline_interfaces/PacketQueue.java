@@ -0,0 +1,74 @@
+package com.java_polytech.pipeline_interfaces;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Queue of the packet numbers announced to a consumer through IConsumer.consume.
+// The numbers are kept in a growing ring buffer of primitives, so nothing is boxed.
+// It waits on a lock rather than on a monitor, so a stage on a virtual thread frees its carrier while it waits.
+public class PacketQueue {
+    private static final int INITIAL_CAPACITY = 16;     // Must be a power of two
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition announced = lock.newCondition();
+    private long[] numbers = new long[INITIAL_CAPACITY];
+    private int head = 0;                               // Position of the first number
+    private int count = 0;                              // Number of queued numbers
+    private volatile long waitNanos = 0;                // Time take has waited for a number, written under the lock
+
+    public void put(long packet_number) {
+        lock.lock();
+        try {
+            if (count == numbers.length) {
+                long[] grown = new long[numbers.length * 2];
+                for (int i = 0; i < count; i++)
+                    grown[i] = numbers[(head + i) & (numbers.length - 1)];
+                numbers = grown;
+                head = 0;
+            }
+            numbers[(head + count) & (numbers.length - 1)] = packet_number;
+            count++;
+            announced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits for the next announced packet number. If the thread is interrupted, the end of file is returned
+    public long take() {
+        lock.lock();
+        try {
+            if (count == 0) {
+                long start = System.nanoTime();
+                try {
+                    while (count == 0)
+                        announced.await();
+                } finally {
+                    waitNanos += System.nanoTime() - start;
+                }
+            }
+            long packet_number = numbers[head];
+            head = (head + 1) & (numbers.length - 1);
+            count--;
+            return packet_number;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return IConsumer.END_OF_FILE_PACKET_NUMBER;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The number of announced numbers not taken yet
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+}
@@ -0,0 +1,153 @@
+package com.java_polytech.pipeline_interfaces;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Concurrent map from packet numbers to packets.
+// The keys are kept in primitive arrays, so packet numbers are never boxed, and the map is split into
+// stripes with separate locks, so the provider and the consumer working on different packets do not contend.
+public class PacketStore<T> {
+    private static final int STRIPES = 16;                 // Number of stripes, must be a power of two
+    private static final int INITIAL_CAPACITY = 8;         // Initial size of a stripe table, must be a power of two
+
+    // One part of the map with open addressing and linear probing
+    private static class Stripe {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY]; // null marks a free slot
+        private int count = 0;
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != null && keys[slot] != key)
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        synchronized Object put(long key, Object value) {
+            if (2 * (count + 1) > keys.length)
+                grow();
+            int slot = find(key);
+            Object old = values[slot];
+            keys[slot] = key;
+            values[slot] = value;
+            if (old == null)
+                count++;
+            return old;
+        }
+
+        synchronized Object get(long key) {
+            return values[find(key)];
+        }
+
+        synchronized Object remove(long key) {
+            int slot = find(key);
+            Object old = values[slot];
+            if (old == null)
+                return null;
+            values[slot] = null;
+            count--;
+            // Shift the following entries back so that the probe sequences stay unbroken
+            int mask = keys.length - 1;
+            int next = (slot + 1) & mask;
+            while (values[next] != null) {
+                int home = hash(keys[next]) & mask;
+                // Move the entry if its home slot is not in the cyclic range (slot, next]
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    keys[slot] = keys[next];
+                    values[slot] = values[next];
+                    values[next] = null;
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+            return old;
+        }
+
+        // Empties the stripe and returns its old values, the packets are the ones that are not null
+        synchronized Object[] clear() {
+            Object[] removed = values;
+            keys = new long[INITIAL_CAPACITY];
+            values = new Object[INITIAL_CAPACITY];
+            count = 0;
+            return removed;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++)
+                if (oldValues[i] != null) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+
+    public PacketStore() {
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
+    }
+
+    // Consecutive packet numbers fall into different stripes
+    private Stripe stripe(long packet_number) {
+        return stripes[(int) packet_number & (STRIPES - 1)];
+    }
+
+    // Stores the packet, the packet must not be null. Returns the previous packet with the same number
+    @SuppressWarnings("unchecked")
+    public T put(long packet_number, T packet) {
+        Object old = stripe(packet_number).put(packet_number, packet);
+        if (old == null)
+            size.incrementAndGet();
+        return (T) old;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long packet_number) {
+        return (T) stripe(packet_number).get(packet_number);
+    }
+
+    public boolean containsKey(long packet_number) {
+        return stripe(packet_number).get(packet_number) != null;
+    }
+
+    // Removes the packet and returns it, or null if there is no such packet
+    @SuppressWarnings("unchecked")
+    public T remove(long packet_number) {
+        Object old = stripe(packet_number).remove(packet_number);
+        if (old != null)
+            size.decrementAndGet();
+        return (T) old;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void clear() {
+        drain(packet -> { });
+    }
+
+    // Removes all packets and passes every one of them to the action
+    @SuppressWarnings("unchecked")
+    public void drain(Consumer<? super T> action) {
+        for (Stripe stripe : stripes)
+            for (Object packet : stripe.clear())
+                if (packet != null) {
+                    size.decrementAndGet();
+                    action.accept((T) packet);
+                }
+    }
+}
@@ -0,0 +1,151 @@
+package com.java_polytech.pipeline_interfaces;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The counters of a running stage, see IMonitoredStage.
+// The stage counts the packets and bytes it takes and gives and the time it spends in its input and output
+// (reading the file, writing the file); the time it waits for announced packets and for credits is kept by its
+// PacketQueue and PacketChannel, which are watched. Any thread may read the counters while the stage runs.
+// The CPU time is that of the thread the stage runs on, measured from started to ended, so a pooled thread shared by
+// several pipelines one after another is not counted twice. The fused executors share their thread and its time.
+// The JVM may not measure the CPU time of a thread, e.g. a virtual one, then it is -1
+public class StageStats {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final long UNKNOWN = -1;
+
+    private final AtomicLong packetsIn = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong packetsOut = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong inputNanos = new AtomicLong();    // Spent reading the input of the stage
+    private final AtomicLong outputNanos = new AtomicLong();   // Spent writing the output of the stage
+    private volatile PacketQueue input;                        // The packets announced to the stage, or null
+    private volatile PacketChannel<?> output;                  // The packets published by the stage, or null
+    private volatile boolean isEncoding = false;
+    private volatile boolean isDecoding = false;
+    private volatile Thread thread;                            // The thread of the stage since started
+    private volatile long startCpuNanos = UNKNOWN;
+    private volatile long cpuNanos = UNKNOWN;                  // Set by ended
+
+    public void watch(PacketQueue input, PacketChannel<?> output) {
+        this.input = input;
+        this.output = output;
+    }
+
+    // The stage codes its input, so the ratio of its bytes is reported
+    public void setCoding(boolean isEncoding) {
+        this.isEncoding = isEncoding;
+        isDecoding = !isEncoding;
+    }
+
+    public boolean isCoding() {
+        return isEncoding || isDecoding;
+    }
+
+    public void countIn(long bytes) {
+        packetsIn.incrementAndGet();
+        bytesIn.addAndGet(bytes);
+    }
+
+    public void countOut(long bytes) {
+        packetsOut.incrementAndGet();
+        bytesOut.addAndGet(bytes);
+    }
+
+    public void addInputNanos(long nanos) {
+        inputNanos.addAndGet(nanos);
+    }
+
+    public void addOutputNanos(long nanos) {
+        outputNanos.addAndGet(nanos);
+    }
+
+    // Called on the thread of the stage when it starts running, a fused executor calls it on every packet
+    public void started() {
+        Thread current = Thread.currentThread();
+        if (thread == current)
+            return;
+        thread = current;
+        startCpuNanos = currentCpuNanos();
+    }
+
+    // Called on the thread of the stage when it has ended
+    public void ended() {
+        if (thread != Thread.currentThread())
+            return;
+        long now = currentCpuNanos();
+        cpuNanos = now == UNKNOWN || startCpuNanos == UNKNOWN ? UNKNOWN : now - startCpuNanos;
+        thread = null;
+    }
+
+    private static long currentCpuNanos() {
+        try {
+            return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : UNKNOWN;
+        } catch (UnsupportedOperationException ex) { // E.g. a virtual thread
+            return UNKNOWN;
+        }
+    }
+
+    public long getPacketsIn() {
+        return packetsIn.get();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    public long getPacketsOut() {
+        return packetsOut.get();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    // Waiting for the provider: for the announced packets and reading the input
+    public long getUpstreamWaitNanos() {
+        PacketQueue queue = input;
+        return inputNanos.get() + (queue == null ? 0 : queue.getWaitNanos());
+    }
+
+    // Waiting for the consumer: for the credits and writing the output
+    public long getBackpressureWaitNanos() {
+        PacketChannel<?> channel = output;
+        return outputNanos.get() + (channel == null ? 0 : channel.getBlockedNanos());
+    }
+
+    // The packets announced to the stage that it has not taken yet
+    public int getInputQueueDepth() {
+        PacketQueue queue = input;
+        return queue == null ? 0 : queue.size();
+    }
+
+    // The packets published by the stage that its consumer has not taken yet
+    public int getOutputQueueDepth() {
+        PacketChannel<?> channel = output;
+        return channel == null ? 0 : channel.size();
+    }
+
+    public long getCpuNanos() {
+        Thread current = thread;
+        if (current == null)
+            return cpuNanos;
+        long start = startCpuNanos;
+        long now = THREADS.isThreadCpuTimeSupported() ? THREADS.getThreadCpuTime(current.getId()) : UNKNOWN;
+        return now == UNKNOWN || start == UNKNOWN ? UNKNOWN : now - start;
+    }
+
+    // The plain bytes per coded byte: the input per output of an encoder, the output per input of a decoder.
+    // NaN if the stage does not code or has not coded anything yet
+    public double getCompressionRatio() {
+        long in = bytesIn.get();
+        long out = bytesOut.get();
+        if (isEncoding && out > 0)
+            return (double)in / out;
+        if (isDecoding && in > 0)
+            return (double)out / in;
+        return Double.NaN;
+    }
+}
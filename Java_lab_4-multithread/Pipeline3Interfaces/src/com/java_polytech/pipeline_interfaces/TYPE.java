@@ -3,5 +3,8 @@ package com.java_polytech.pipeline_interfaces;
 public enum TYPE {
     BYTE_ARRAY,
     CHAR_ARRAY,
-    INT_ARRAY
+    INT_ARRAY,
+    // java.nio.ByteBuffer, the packet is between its position and limit.
+    // The buffer is handed over without copying and must be returned through IMediator.release
+    BYTE_BUFFER
 }
@@ -0,0 +1,301 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.config_support.MySyntaxAnalyzer;
+import com.java_polytech.pipeline_interfaces.*;
+
+import javafx.util.Pair;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import static com.java_polytech.pipeline_interfaces.RC.*;
+
+// The class that maps the input file into memory and passes it on in read-only slices of the mapping,
+// so the consumer reads the page cache directly and the data is never copied to the heap
+public class MappedReader implements IChannelReader, ICreditedProvider, IMonitoredStage {
+    static final int NUM_OF_VALUES = 1;      // How many times should the grammar field value be set
+    static private final long MAX_WINDOW_SIZE = 64L << 20; // The file is mapped by windows of about this size
+    boolean IsConsumerSpecified = false;     // Flag indicating whether the consumer is set
+    boolean IsConfigSpecified = false;       // Flag indicating whether the configuration file is set
+    boolean IsInputChannelSpecified = false; // Flag indicating whether the input file is set
+
+    FileChannel inputChannel;                // Input file
+
+    int bufferSize = 0;                      // Size of a packet
+    long current_packet_number = 0;
+    // By default the packets waiting for the consumer may take the bytes of this number of full packets
+    private static final int DEFAULT_CREDIT_PACKETS = 5;
+    private final PacketChannel<ByteBuffer> availableBuffers = new PacketChannel<>(0, ByteBuffer::remaining);
+    private boolean IsCreditsSpecified = false;  // Flag indicating whether the config has set the credits
+    private final StageStats stats = new StageStats();
+
+    private final TYPE[] supportedTypes = { TYPE.BYTE_BUFFER, TYPE.BYTE_ARRAY };
+
+    RC CurrentState = RC_SUCCESS;
+
+    @Override
+    public RC getCurrentState() {
+        return CurrentState;
+    }
+
+    @Override
+    public StageStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void setDefaultCredits(int bytes) {
+        if (!IsCreditsSpecified)
+            availableBuffers.setCredits(bytes);
+    }
+
+    @Override
+    public int getCredits() {
+        return availableBuffers.getCredits();
+    }
+
+    IConsumer consumer;                      // The one to whom the slices of the file are passed
+
+    // Waits for the packet and checks it, returns null on error
+    private ByteBuffer receive(long packet_number) {
+        if (packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER) {
+            return null;
+        }
+        // Wait until the packet is published, the reading is over or the consumer has failed
+        ByteBuffer buf = availableBuffers.receive(packet_number);
+        if (buf == null) {
+            if (availableBuffers.getState().isSuccess())
+                CurrentState = new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Invalid index asked");
+            return null;
+        }
+        return buf;
+    }
+
+    class ByteArrayMediator implements IMediator {
+        @Override
+        public Object getData(long packet_number) {
+            ByteBuffer buf = receive(packet_number);
+            if (buf == null)
+                return null;
+
+            byte[] data = new byte[buf.remaining()];
+            buf.get(data);
+            return data;
+        }
+
+        @Override
+        public void cancel() {
+            availableBuffers.fail(new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Consumer has stopped"));
+        }
+    }
+
+    // Hands the slice of the mapping over. It needs no return, the mapping is freed with the last slice
+    class ByteBufferMediator implements IMediator {
+        @Override
+        public Object getData(long packet_number) {
+            return receive(packet_number);
+        }
+
+        @Override
+        public void cancel() {
+            availableBuffers.fail(new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Consumer has stopped"));
+        }
+    }
+
+    // Tells the consumer that there will be no more packets
+    private void finish() {
+        stats.ended();
+        if (CurrentState.isSuccess())
+            availableBuffers.close();
+        else
+            availableBuffers.fail(CurrentState);
+        RC consumerRC = consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
+        if (!consumerRC.isSuccess() && CurrentState.isSuccess())
+            CurrentState = consumerRC;
+    }
+
+    @Override
+    public RC setConfig(String str) {
+        // Perform a syntactic analysis of the configuration file
+        MySyntaxAnalyzer config = new MySyntaxAnalyzer(RCWho.READER, new ReaderGrammarMy());
+        RC code = config.process(str);
+
+        // If the syntactic analysis was successful, conduct a semantic analysis
+        if (code.isSuccess()) {
+            try {
+                Pair<RC, ArrayList<String>> val = config.GetFieldValues(ReaderGrammarMy.ConfigParams.BUFFER_SIZE.asString());
+
+                if (!val.getKey().isSuccess())
+                    return val.getKey();
+
+                // The value of the field is not set the number of times that is necessary
+                if(val.getValue().size() != NUM_OF_VALUES)
+                    return new RC(RCWho.READER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field must be set "
+                        + NUM_OF_VALUES + " time(s)");
+
+                bufferSize = Integer.parseInt(val.getValue().get(NUM_OF_VALUES - 1));
+                // A negative number or zero is specified as the value
+                if(bufferSize <= 0)
+                    return new RC(RCWho.READER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field must be positive");
+                if(bufferSize % 4 != 0)
+                    return new RC(RCWho.READER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field must be divisible by 4");
+            }
+            catch (NumberFormatException ex) { // The value is not a number
+                return RC_READER_CONFIG_SEMANTIC_ERROR;
+            }
+
+            // The credits are optional, by default they hold DEFAULT_CREDIT_PACKETS full packets
+            availableBuffers.setCredits((int)Math.min(Integer.MAX_VALUE, (long)DEFAULT_CREDIT_PACKETS * bufferSize));
+            IsCreditsSpecified = false;
+            try {
+                Pair<RC, String> val = config.GetOptionalValue(ReaderGrammarMy.ConfigParams.CREDIT_BYTES.asString());
+
+                if (!val.getKey().isSuccess())
+                    return val.getKey();
+
+                if (val.getValue() != null) {
+                    int credits = Integer.parseInt(val.getValue());
+                    // A negative number or zero is specified as the value
+                    if (credits <= 0)
+                        return new RC(RCWho.READER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ReaderGrammarMy.ConfigParams.CREDIT_BYTES.asString() + " must be positive");
+                    availableBuffers.setCredits(credits);
+                    IsCreditsSpecified = true;
+                }
+            }
+            catch (NumberFormatException ex) { // The value is not a number
+                return RC_READER_CONFIG_SEMANTIC_ERROR;
+            }
+
+            IsConfigSpecified = true;
+            return RC_SUCCESS;
+        }
+        return code;
+    }
+
+    @Override
+    public TYPE[] getOutputTypes() {
+        return supportedTypes;
+    }
+
+    @Override
+    public IMediator getMediator(TYPE Type) {
+        if (Type.equals(TYPE.BYTE_BUFFER))
+            return new ByteBufferMediator();
+        else if (Type.equals(TYPE.BYTE_ARRAY))
+            return new ByteArrayMediator();
+        else
+            return null;
+    }
+
+    @Override
+    public RC setInputChannel(FileChannel input) {
+        inputChannel = input;
+        IsInputChannelSpecified = true;
+        return RC_SUCCESS;
+    }
+
+    // Only a file can be mapped, so the stream must be a file stream
+    @Override
+    public RC setInputStream(InputStream input) {
+        if (!(input instanceof FileInputStream))
+            return new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Only a file can be mapped");
+        return setInputChannel(((FileInputStream) input).getChannel());
+    }
+
+    @Override
+    public RC setConsumer(IConsumer iConsumer) {
+        consumer = iConsumer;
+        RC rc = iConsumer.setProvider(this);
+        if (!rc.isSuccess())
+            return rc;
+        IsConsumerSpecified = true;
+        return RC_SUCCESS;
+    }
+
+    @Override
+    public void run() {
+        stats.started();
+        stats.watch(null, availableBuffers);
+        if (!IsConfigSpecified) {
+            CurrentState = new RC(RC.RCWho.READER, RC.RCType.CODE_CUSTOM_ERROR, "Config not specified");
+            finish();
+            return;
+        }
+
+        if (!IsConsumerSpecified) {
+            CurrentState = new RC(RC.RCWho.READER, RC.RCType.CODE_CUSTOM_ERROR, "Consumer not specified");
+            finish();
+            return;
+        }
+        if (!IsInputChannelSpecified) {
+            CurrentState = new RC(RC.RCWho.READER, RC.RCType.CODE_CUSTOM_ERROR, "Input file not specified");
+            finish();
+            return;
+        }
+
+        // A window holds a whole number of packets, so a packet never crosses the border of windows
+        long windowSize = Math.max(bufferSize, MAX_WINDOW_SIZE / bufferSize * bufferSize);
+        long fileSize;
+        long position;
+        try {
+            fileSize = inputChannel.size();
+            position = inputChannel.position();
+        } catch (IOException e) {
+            CurrentState = RC_READER_FAILED_TO_READ;
+            finish();
+            return;
+        }
+
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+        while (position < fileSize && CurrentState.isSuccess()) {
+            if (window == null || position - windowStart >= window.capacity()) {
+                // The pages are read later by the consumer, only the mapping itself is the wait for the input
+                long start = System.nanoTime();
+                try {
+                    window = inputChannel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(windowSize, fileSize - position));
+                    stats.addInputNanos(System.nanoTime() - start);
+                } catch (IOException e) {
+                    CurrentState = RC_READER_FAILED_TO_READ;
+                    finish();
+                    return;
+                }
+                windowStart = position;
+            }
+
+            int offset = (int)(position - windowStart);
+            int length = Math.min(bufferSize, window.capacity() - offset);
+            ByteBuffer slice = window.duplicate();
+            slice.position(offset);
+            slice.limit(offset + length);
+            // Wait for free space in the channel, it fails if the consumer has stopped
+            if (!availableBuffers.publish(current_packet_number, slice.slice().asReadOnlyBuffer())) {
+                CurrentState = availableBuffers.getState().isSuccess()
+                        ? new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Reading was interrupted")
+                        : availableBuffers.getState();
+                finish();
+                return;
+            }
+            stats.countIn(length);
+            stats.countOut(length);
+            RC tmp_rc = consumer.consume(current_packet_number);
+            if(current_packet_number == 0x8fffffff)
+                current_packet_number = -1;
+            current_packet_number++;
+            if (!tmp_rc.isSuccess()) {
+                CurrentState = tmp_rc;
+                finish();
+                return;
+            }
+            position += length;
+        }
+
+        finish();
+    }
+}
@@ -6,17 +6,28 @@ import com.java_polytech.config_support.MyIGrammar;
 public class ReaderGrammarMy implements MyIGrammar {
     // The enum containing the reader's grammar fields
     public enum ConfigParams {
-        BUFFER_SIZE("BUFFER_SIZE");
+        BUFFER_SIZE("BUFFER_SIZE"),
+        CREDIT_BYTES("CREDIT_BYTES", true);
 
         private final String parameter;
+        private final boolean optional;  // Whether the field may be omitted in the config file
 
         ConfigParams(String param) {
+            this(param, false);
+        }
+
+        ConfigParams(String param, boolean isOptional) {
             parameter = param;
+            optional = isOptional;
         }
 
         public String asString() {
             return parameter;
         }
+
+        public boolean isOptional() {
+            return optional;
+        }
     }
 
     static private final String DELIMITER = "\\s*=\\s*"; // Delimiter between the field name and value
@@ -44,4 +55,21 @@ public class ReaderGrammarMy implements MyIGrammar {
     public int numberOfFields() {
         return ConfigParams.values().length;
     }
+
+    @Override
+    public boolean isOptionalKey(String str) {
+        for (ConfigParams fieldName : ConfigParams.values())
+            if (str.equals(fieldName.asString()))
+                return fieldName.isOptional();
+        return false;
+    }
+
+    @Override
+    public int numberOfOptionalFields() {
+        int count = 0;
+        for (ConfigParams fieldName : ConfigParams.values())
+            if (fieldName.isOptional())
+                count++;
+        return count;
+    }
 }
\ No newline at end of file
@@ -6,13 +6,13 @@ import com.java_polytech.pipeline_interfaces.*;
 import javafx.util.Pair;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import static com.java_polytech.pipeline_interfaces.RC.*;
 
 // The class that performs buffered input from a file
-public class ReaderMy implements IReader {
+public class ReaderMy implements IReader, ICreditedProvider, IBufferedStage, IMonitoredStage {
     static final int NUM_OF_VALUES = 1;      // How many times should the grammar field value be set
     boolean IsConsumerSpecified = false;     // Flag indicating whether the consumer is set
     boolean IsConfigSpecified = false;       // Flag indicating whether the configuration file is set
@@ -22,12 +22,15 @@ public class ReaderMy implements IReader {
 
     int bufferSize = 0;
     int wasReadBytes = 0;
-    byte[] currentBuffer;
     long current_packet_number = 0;
-    private final HashMap<Long, byte[]> availableBuffers = new HashMap<>();
-    private static final int MAX_NUM = 5;
+    // By default the packets waiting for the consumer may take the bytes of this number of full packets
+    private static final int DEFAULT_CREDIT_PACKETS = 5;
+    private final PacketChannel<ByteBuffer> availableBuffers = new PacketChannel<>(0, ByteBuffer::remaining,
+            this::recycle);
+    private boolean IsCreditsSpecified = false;  // Flag indicating whether the config has set the credits
+    private final StageStats stats = new StageStats();
 
-    private final TYPE[] supportedTypes = { TYPE.BYTE_ARRAY };
+    private final TYPE[] supportedTypes = { TYPE.BYTE_BUFFER, TYPE.BYTE_ARRAY };
 
     RC CurrentState = RC_SUCCESS;
 
@@ -36,42 +39,105 @@ public class ReaderMy implements IReader {
         return CurrentState;
     }
 
+    @Override
+    public long getMaxBufferedBytes() {
+        // The packets waiting in the channel and the one being read
+        return (long)availableBuffers.getCredits() + bufferSize;
+    }
+
+    @Override
+    public StageStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void setDefaultCredits(int bytes) {
+        if (!IsCreditsSpecified)
+            availableBuffers.setCredits(bytes);
+    }
+
+    @Override
+    public int getCredits() {
+        return availableBuffers.getCredits();
+    }
+
     IConsumer consumer;                      // The one to whom the buffer with the read information is passed
 
+    // Waits for the packet and checks it, returns null on error
+    private ByteBuffer receive(long packet_number) {
+        if (packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER) {
+            return null;
+        }
+        // Wait until the packet is published, the reading is over or the consumer has failed
+        ByteBuffer buf = availableBuffers.receive(packet_number);
+        if (buf == null) {
+            if (availableBuffers.getState().isSuccess())
+                CurrentState = new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Invalid index asked");
+            return null;
+        }
+        if (!buf.hasRemaining()) {
+            CurrentState = new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Something wrong with file reading");
+            return null;
+        }
+        return buf;
+    }
+
+    // Returns the array of the packet to the pool
+    private void recycle(ByteBuffer buf) {
+        if (buf != null && buf.hasArray())
+            BufferPool.SHARED.release(RCWho.READER, buf.array());
+    }
+
     class ByteArrayMediator implements IMediator {
         @Override
         public Object getData(long packet_number) {
-            if (packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER) {
-                return null;
-            }
-            if (!availableBuffers.containsKey(packet_number) &&
-                    current_packet_number == IConsumer.END_OF_FILE_PACKET_NUMBER) {
-                CurrentState = new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Invalid index asked");
+            ByteBuffer buf = receive(packet_number);
+            if (buf == null)
                 return null;
-            }
-            while (!availableBuffers.containsKey(packet_number) &&
-                    current_packet_number != IConsumer.END_OF_FILE_PACKET_NUMBER) {
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException ex) {}
-            }
-            if (availableBuffers.containsKey(packet_number)) {
-                byte[] buf = availableBuffers.get(packet_number);
-                if (buf.length == 0) {
-                    CurrentState = new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Something wrong with file reading");
-                    return null;
-                }
 
-                byte[] data = new byte[buf.length];
-                System.arraycopy(buf, 0, data, 0, buf.length);
-                availableBuffers.remove(packet_number);
-                return data;
-            }
-            CurrentState = new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Something goes wrong in Mediator");
-            return null;
+            byte[] data = new byte[buf.remaining()];
+            buf.get(data);
+            recycle(buf);
+            return data;
+        }
+
+        @Override
+        public void cancel() {
+            availableBuffers.fail(new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Consumer has stopped"));
         }
     }
 
+    // Hands the read buffer over without copying, the consumer returns it through release
+    class ByteBufferMediator implements IMediator {
+        @Override
+        public Object getData(long packet_number) {
+            return receive(packet_number);
+        }
+
+        @Override
+        public void release(Object data) {
+            if (data instanceof ByteBuffer)
+                recycle((ByteBuffer)data);
+        }
+
+        @Override
+        public void cancel() {
+            availableBuffers.fail(new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Consumer has stopped"));
+        }
+    }
+
+    // Tells the consumer that there will be no more packets
+    private void finish() {
+        stats.ended();
+        if (CurrentState.isSuccess())
+            availableBuffers.close();
+        else
+            availableBuffers.fail(CurrentState);
+        RC consumerRC = consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
+        if (!consumerRC.isSuccess() && CurrentState.isSuccess())
+            CurrentState = consumerRC;
+    }
+
     @Override
     public RC setConfig(String str) {
         // Perform a syntactic analysis of the configuration file
@@ -102,7 +168,29 @@ public class ReaderMy implements IReader {
                 return RC_READER_CONFIG_SEMANTIC_ERROR;
             }
 
-            currentBuffer = new byte[bufferSize];
+            // The credits are optional, by default they hold DEFAULT_CREDIT_PACKETS full packets
+            availableBuffers.setCredits((int)Math.min(Integer.MAX_VALUE, (long)DEFAULT_CREDIT_PACKETS * bufferSize));
+            IsCreditsSpecified = false;
+            try {
+                Pair<RC, String> val = config.GetOptionalValue(ReaderGrammarMy.ConfigParams.CREDIT_BYTES.asString());
+
+                if (!val.getKey().isSuccess())
+                    return val.getKey();
+
+                if (val.getValue() != null) {
+                    int credits = Integer.parseInt(val.getValue());
+                    // A negative number or zero is specified as the value
+                    if (credits <= 0)
+                        return new RC(RCWho.READER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ReaderGrammarMy.ConfigParams.CREDIT_BYTES.asString() + " must be positive");
+                    availableBuffers.setCredits(credits);
+                    IsCreditsSpecified = true;
+                }
+            }
+            catch (NumberFormatException ex) { // The value is not a number
+                return RC_READER_CONFIG_SEMANTIC_ERROR;
+            }
+
             wasReadBytes = 0;
 
             IsConfigSpecified = true;
@@ -118,7 +206,9 @@ public class ReaderMy implements IReader {
 
     @Override
     public IMediator getMediator(TYPE Type) {
-        if (Type.equals(TYPE.BYTE_ARRAY))
+        if (Type.equals(TYPE.BYTE_BUFFER))
+            return new ByteBufferMediator();
+        else if (Type.equals(TYPE.BYTE_ARRAY))
             return new ByteArrayMediator();
         else
             return null;
@@ -141,66 +231,88 @@ public class ReaderMy implements IReader {
         return RC_SUCCESS;
     }
 
+    private byte[] nextBuffer() {
+        return BufferPool.SHARED.lease(RCWho.READER, bufferSize);
+    }
+
+    // Reads the next packet, the time it takes is the wait of the stage for its input
+    private int read(byte[] buffer) throws IOException {
+        long start = System.nanoTime();
+        int read = inputStream.read(buffer, 0, bufferSize);
+        stats.addInputNanos(System.nanoTime() - start);
+        if (read > 0)
+            stats.countIn(read);
+        return read;
+    }
+
     @Override
     public void run() {
+        stats.started();
+        stats.watch(null, availableBuffers);
         if (!IsConfigSpecified) {
             CurrentState = new RC(RC.RCWho.READER, RC.RCType.CODE_CUSTOM_ERROR, "Config not specified");
-            consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
+            finish();
             return;
         }
 
         if (!IsConsumerSpecified) {
             CurrentState = new RC(RC.RCWho.READER, RC.RCType.CODE_CUSTOM_ERROR, "Consumer not specified");
-            consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
+            finish();
             return;
         }
         if (!IsInputStreamSpecified) {
             CurrentState = new RC(RC.RCWho.READER, RC.RCType.CODE_CUSTOM_ERROR, "Input stream not specified");
-            consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
+            finish();
             return;
         }
 
+        byte[] currentBuffer = nextBuffer();
         try {
-            wasReadBytes = inputStream.read(currentBuffer, 0, bufferSize);
+            wasReadBytes = read(currentBuffer);
         } catch (IOException e) {
             CurrentState = RC_READER_FAILED_TO_READ;
-            consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
+            BufferPool.SHARED.release(RCWho.READER, currentBuffer);
+            finish();
             return;
         }
 
         while (wasReadBytes > 0 && CurrentState.isSuccess()) {
-            while(availableBuffers.size() >= MAX_NUM)
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ex) {}
-
             RC tmp_rc;
-            byte[] tmp = new byte[wasReadBytes];
-            System.arraycopy(currentBuffer, 0, tmp, 0, wasReadBytes);
-            availableBuffers.put(current_packet_number, tmp);
+            // The read array itself becomes the packet, the consumer owns it until it is released
+            ByteBuffer tmp = ByteBuffer.wrap(currentBuffer, 0, wasReadBytes);
+            // Wait for free space in the channel, it fails if the consumer has stopped
+            if (!availableBuffers.publish(current_packet_number, tmp)) {
+                CurrentState = availableBuffers.getState().isSuccess()
+                        ? new RC(RCWho.READER, RCType.CODE_CUSTOM_ERROR, "Reading was interrupted")
+                        : availableBuffers.getState();
+                BufferPool.SHARED.release(RCWho.READER, currentBuffer);
+                finish();
+                return;
+            }
+            stats.countOut(wasReadBytes);
             tmp_rc = consumer.consume(current_packet_number);
             if(current_packet_number == 0x8fffffff)
                 current_packet_number = -1;
             current_packet_number++;
             if (!tmp_rc.isSuccess()) {
-                consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
                 CurrentState = tmp_rc;
+                finish();
                 return;
             }
 
+            currentBuffer = nextBuffer();
             try {
-                wasReadBytes = inputStream.read(currentBuffer, 0, bufferSize);
+                wasReadBytes = read(currentBuffer);
             } catch (IOException e) {
-                consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
                 CurrentState = RC_READER_FAILED_TO_READ;
+                BufferPool.SHARED.release(RCWho.READER, currentBuffer);
+                finish();
                 return;
             }
         }
 
-        RC consumerRC;
         wasReadBytes = 0;
-        consumerRC = consumer.consume(IConsumer.END_OF_FILE_PACKET_NUMBER);
-        if (!consumerRC.isSuccess())
-            CurrentState = consumerRC;
+        BufferPool.SHARED.release(RCWho.READER, currentBuffer);
+        finish();
     }
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.config_support.MySyntaxAnalyzer;
+import com.java_polytech.pipeline_interfaces.*;
+
+import javafx.util.Pair;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import static com.java_polytech.pipeline_interfaces.RC.*;
+
+// The class that writes the received packets to the file channel without copying them.
+// The packets are collected until BUFFER_SIZE bytes are gathered and written by one gathering write,
+// after that they are given back to the provider.
+// DIRECT = TRUE copies the heap packets into a direct buffer, which the channel writes without a temporary copy.
+// PREALLOCATE = n extends the file to n bytes before writing, the file is cut to the written size at the end.
+public class ChannelWriter implements IChannelWriter, IBufferedStage, IMonitoredStage {
+    static final int NUM_OF_VALUES = 1;        // How many times should the grammar field value be set
+    static private final int MAX_GATHER = 16;  // The maximum number of packets in one write
+    static private final String TRUE_VALUE = "TRUE";
+    static private final String FALSE_VALUE = "FALSE";
+    static private final double NANOS_IN_SECOND = 1e9;
+    boolean IsConfigSpecified  = false;        // Flag indicating whether the configuration file is set
+    boolean IsOutputChannelSpecified = false;  // Flag indicating whether the output file is set
+    boolean IsTypeSpecified  = false;          // Flag indicating whether the TYPE is set
+
+    private final TYPE[] supportedTypes = {TYPE.BYTE_BUFFER, TYPE.BYTE_ARRAY, TYPE.INT_ARRAY, TYPE.CHAR_ARRAY};
+    private TYPE currentType;
+
+    IProvider Prev;
+    IMediator Mediator;
+
+    private FileChannel outputChannel;         // Output file
+    private int bufferSize = 0;                // The number of bytes gathered before writing
+    private boolean isDirect = false;
+    private long preallocateSize = 0;
+
+    private final ByteBuffer[] gathered = new ByteBuffer[MAX_GATHER]; // Packets waiting for writing
+    private final Object[] gatheredData = new Object[MAX_GATHER];     // Their data to give back, null if copied
+    private int gatheredCount = 0;
+    private long gatheredBytes = 0;
+    private ByteBuffer staging;                // Direct buffer for the copies of the heap packets
+
+    private long bytesWritten = 0;
+    private long startTime = 0;
+    private long endTime = 0;
+
+    RC CurrentState = RC_SUCCESS;
+    private final PacketQueue availablePackets = new PacketQueue();
+    private final StageStats stats = new StageStats();
+
+    @Override
+    public RC getCurrentState() {
+        return CurrentState;
+    }
+
+    @Override
+    public long getMaxBufferedBytes() {
+        // The staging buffer, the gathered packets belong to the provider
+        return bufferSize;
+    }
+
+    @Override
+    public StageStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        if (endTime <= startTime)
+            return 0;
+        return bytesWritten * NANOS_IN_SECOND / (endTime - startTime);
+    }
+
+    @Override
+    public RC setConfig(String str) {
+        // Perform a syntactic analysis of the configuration file
+        MySyntaxAnalyzer config = new MySyntaxAnalyzer(RCWho.WRITER, new ChannelWriterGrammarMy());
+        RC code = config.process(str);
+
+        // If the syntactic analysis was successful, conduct a semantic analysis
+        if (code.isSuccess()) {
+            try {
+                Pair<RC, ArrayList<String>> val = config.GetFieldValues(ChannelWriterGrammarMy.ConfigParams.BUFFER_SIZE.asString());
+
+                if (!val.getKey().isSuccess())
+                    return val.getKey();
+
+                // The value of the field is not set the number of times that is necessary
+                if(val.getValue().size() != NUM_OF_VALUES)
+                    return new RC(RCWho.WRITER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field must be set "
+                            + NUM_OF_VALUES + " time(s)");
+
+                bufferSize = Integer.parseInt(val.getValue().get(NUM_OF_VALUES - 1));
+                // A negative number or zero is specified as the value
+                if(bufferSize <= 0)
+                    return new RC(RCWho.WRITER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field must be positive");
+                if(bufferSize % 4 != 0)
+                    return new RC(RCWho.WRITER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field must be divisible by 4");
+
+                Pair<RC, String> direct = config.GetOptionalValue(ChannelWriterGrammarMy.ConfigParams.DIRECT.asString());
+                if (!direct.getKey().isSuccess())
+                    return direct.getKey();
+                if (direct.getValue() != null) {
+                    if (direct.getValue().equalsIgnoreCase(TRUE_VALUE))
+                        isDirect = true;
+                    else if (direct.getValue().equalsIgnoreCase(FALSE_VALUE))
+                        isDirect = false;
+                    else
+                        return new RC(RCWho.WRITER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ChannelWriterGrammarMy.ConfigParams.DIRECT.asString() + " must be "
+                                + TRUE_VALUE + " or " + FALSE_VALUE);
+                }
+
+                Pair<RC, String> preallocate = config.GetOptionalValue(ChannelWriterGrammarMy.ConfigParams.PREALLOCATE.asString());
+                if (!preallocate.getKey().isSuccess())
+                    return preallocate.getKey();
+                if (preallocate.getValue() != null) {
+                    preallocateSize = Long.parseLong(preallocate.getValue());
+                    if (preallocateSize < 0)
+                        return new RC(RCWho.WRITER, RCType.CODE_CONFIG_SEMANTIC_ERROR, "The value of field "
+                                + ChannelWriterGrammarMy.ConfigParams.PREALLOCATE.asString() + " must not be negative");
+                }
+            }
+            catch (NumberFormatException ex) { // The value is not a number
+                return RC_WRITER_CONFIG_SEMANTIC_ERROR;
+            }
+
+            staging = isDirect ? ByteBuffer.allocateDirect(bufferSize) : null;
+
+            IsConfigSpecified  = true;
+            return RC_SUCCESS;
+        }
+        return code;
+    }
+
+    @Override
+    public RC setProvider(IProvider provider) {
+        Prev = provider;
+        TYPE[] providedTypes = provider.getOutputTypes();
+        for (int generalType = 0; generalType < supportedTypes.length && !IsTypeSpecified; generalType++)
+            for (TYPE providedType : providedTypes)
+                if (providedType.equals(supportedTypes[generalType])) {
+                    currentType = supportedTypes[generalType];
+                    IsTypeSpecified = true;
+                    break;
+                }
+
+        if (!IsTypeSpecified) {
+            return RC_WRITER_TYPES_INTERSECTION_EMPTY_ERROR;
+        }
+
+        Mediator = Prev.getMediator(currentType);
+        return RC_SUCCESS;
+    }
+
+    @Override
+    public RC setOutputChannel(FileChannel output) {
+        outputChannel = output;
+        IsOutputChannelSpecified = true;
+        return RC_SUCCESS;
+    }
+
+    // Only a file has a channel, so the stream must be a file stream
+    @Override
+    public RC setOutputStream(OutputStream output) {
+        if (!(output instanceof FileOutputStream))
+            return new RC(RCWho.WRITER, RCType.CODE_CUSTOM_ERROR, "Only a file can be written through a channel");
+        return setOutputChannel(((FileOutputStream) output).getChannel());
+    }
+
+    @Override
+    public RC consume(long packet_number) {
+        if (!IsConfigSpecified )
+            return new RC(RCWho.WRITER, RCType.CODE_CUSTOM_ERROR, "Config not specified");
+
+        if (!IsOutputChannelSpecified)
+            return new RC(RCWho.WRITER, RCType.CODE_CUSTOM_ERROR, "Output stream not specified");
+
+        availablePackets.put(packet_number);
+        return CurrentState;
+    }
+
+    // Converts the received data into bytes, the byte packets are used as they are
+    private ByteBuffer toBuffer(Object data) {
+        if (currentType == TYPE.BYTE_BUFFER)
+            return (ByteBuffer) data;
+        else if (currentType == TYPE.BYTE_ARRAY)
+            return ByteBuffer.wrap((byte[]) data);
+        else if (currentType == TYPE.CHAR_ARRAY) {
+            char[] chars = (char[]) data;
+            ByteBuffer byteBuffer = ByteBuffer.allocate(chars.length * 2);
+            CharBuffer charBuffer = byteBuffer.asCharBuffer();
+            charBuffer.put(chars);
+            return byteBuffer;
+        } else {
+            int[] ints = (int[]) data;
+            ByteBuffer byteBuffer = ByteBuffer.allocate(ints.length * 4);
+            IntBuffer intBuffer = byteBuffer.asIntBuffer();
+            intBuffer.put(ints);
+            return byteBuffer;
+        }
+    }
+
+    // Adds the packet to the gathered ones, writing them out when enough is collected
+    private RC gather(ByteBuffer packet, Object data) {
+        if (gatheredCount == MAX_GATHER) {
+            RC rc = flush();
+            if (!rc.isSuccess())
+                return rc;
+        }
+        if (staging != null && !packet.isDirect() && packet.remaining() <= staging.capacity()) {
+            if (packet.remaining() > staging.remaining()) {
+                RC rc = flush();
+                if (!rc.isSuccess())
+                    return rc;
+            }
+            ByteBuffer copy = staging.slice();
+            copy.put(packet);
+            copy.flip();
+            staging.position(staging.position() + copy.limit());
+            // The packet is copied, so it is given back at once
+            Mediator.release(data);
+            packet = copy;
+            data = null;
+        }
+        gathered[gatheredCount] = packet;
+        gatheredData[gatheredCount] = data;
+        gatheredCount++;
+        gatheredBytes += packet.remaining();
+        if (gatheredBytes >= bufferSize)
+            return flush();
+        return RC_SUCCESS;
+    }
+
+    // Writes all gathered packets and gives them back to the provider
+    private RC flush() {
+        RC rc = RC_SUCCESS;
+        long start = System.nanoTime();
+        try {
+            long remaining = gatheredBytes;
+            while (remaining > 0)
+                remaining -= outputChannel.write(gathered, 0, gatheredCount);
+            bytesWritten += gatheredBytes;
+            stats.countOut(gatheredBytes);
+        } catch (IOException e) {
+            rc = RC_WRITER_FAILED_TO_WRITE;
+        }
+        stats.addOutputNanos(System.nanoTime() - start);
+        releaseGathered();
+        return rc;
+    }
+
+    private void releaseGathered() {
+        for (int i = 0; i < gatheredCount; i++) {
+            if (gatheredData[i] != null)
+                Mediator.release(gatheredData[i]);
+            gathered[i] = null;
+            gatheredData[i] = null;
+        }
+        gatheredCount = 0;
+        gatheredBytes = 0;
+        if (staging != null)
+            staging.clear();
+    }
+
+    @Override
+    public void run() {
+        stats.started();
+        stats.watch(availablePackets, null);
+        writeFile();
+        stats.ended();
+    }
+
+    private void writeFile() {
+        bytesWritten = 0;
+        startTime = 0;
+        endTime = 0;
+        if (!IsOutputChannelSpecified) {
+            CurrentState = new RC(RCWho.WRITER, RCType.CODE_CUSTOM_ERROR, "Output stream not specified");
+            return;
+        }
+        try {
+            if (preallocateSize > 0 && outputChannel.size() < preallocateSize)
+                outputChannel.write(ByteBuffer.allocate(1), preallocateSize - 1);
+        } catch (IOException e) {
+            CurrentState = RC_WRITER_FAILED_TO_WRITE;
+        }
+
+        if (CurrentState.isSuccess())
+            writeAll();
+        // The packets that were not written are still owned by the provider
+        releaseGathered();
+        if (!CurrentState.isSuccess())
+            return;
+
+        try {
+            // Cut off the preallocated space that was not used
+            if (preallocateSize > 0 && outputChannel.size() > bytesWritten)
+                outputChannel.truncate(bytesWritten);
+        } catch (IOException e) {
+            CurrentState = RC_WRITER_FAILED_TO_WRITE;
+        }
+        endTime = System.nanoTime();
+    }
+
+    private void writeAll() {
+        long current_packet = availablePackets.take();
+        startTime = System.nanoTime();
+        while (current_packet != IConsumer.END_OF_FILE_PACKET_NUMBER && CurrentState.isSuccess()) {
+            Object data = Mediator.getData(current_packet);
+            if (data == null) {
+                CurrentState = flush();
+                return;
+            }
+
+            ByteBuffer packet = toBuffer(data);
+            stats.countIn(packet.remaining());
+            CurrentState = gather(packet, data);
+            if (!CurrentState.isSuccess()) {
+                Mediator.cancel();
+                return;
+            }
+            current_packet = availablePackets.take();
+        }
+        if (CurrentState.isSuccess())
+            CurrentState = flush();
+    }
+}
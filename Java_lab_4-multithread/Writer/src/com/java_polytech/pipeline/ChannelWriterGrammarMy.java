@@ -0,0 +1,76 @@
+package com.java_polytech.pipeline;
+
+import com.java_polytech.config_support.MyIGrammar;
+
+// The class implementing a grammar interface for the channel writer
+public class ChannelWriterGrammarMy implements MyIGrammar {
+    // The enum containing the writer's grammar fields
+    public enum ConfigParams {
+        BUFFER_SIZE("BUFFER_SIZE"),
+        DIRECT("DIRECT", true),
+        PREALLOCATE("PREALLOCATE", true);
+
+        private final String parameter;
+        private final boolean optional;  // Whether the field may be omitted in the config file
+
+        ConfigParams(String param) {
+            this(param, false);
+        }
+
+        ConfigParams(String param, boolean isOptional) {
+            parameter = param;
+            optional = isOptional;
+        }
+
+        public String asString() {
+            return parameter;
+        }
+
+        public boolean isOptional() {
+            return optional;
+        }
+    }
+
+    static private final String DELIMITER = "\\s*=\\s*"; // Delimiter between the field name and value
+    final static private String COMMENT_STRING = "#";
+
+    @Override
+    public String getDelimiter() {
+        return DELIMITER;
+    }
+
+    @Override
+    public String getCommentString() {
+        return COMMENT_STRING;
+    }
+
+    @Override
+    public boolean isGrammarKey(String str) {
+        for (ConfigParams fieldName : ConfigParams.values())
+            if (str.equals(fieldName.asString()))
+                return true;
+        return false;
+    }
+
+    @Override
+    public int numberOfFields() {
+        return ConfigParams.values().length;
+    }
+
+    @Override
+    public boolean isOptionalKey(String str) {
+        for (ConfigParams fieldName : ConfigParams.values())
+            if (str.equals(fieldName.asString()))
+                return fieldName.isOptional();
+        return false;
+    }
+
+    @Override
+    public int numberOfOptionalFields() {
+        int count = 0;
+        for (ConfigParams fieldName : ConfigParams.values())
+            if (fieldName.isOptional())
+                count++;
+        return count;
+    }
+}
@@ -10,18 +10,17 @@ import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.CharBuffer;
 import java.util.ArrayList;
-import java.util.ArrayDeque;
 
 import static com.java_polytech.pipeline_interfaces.RC.*;
 
 // The class that performs buffered output to a file
-public class WriterMy implements IWriter {
+public class WriterMy implements IWriter, IBufferedStage, IMonitoredStage {
     static final int NUM_OF_VALUES = 1;        // How many times should the grammar field value be set
     boolean IsConfigSpecified  = false;        // Flag indicating whether the configuration file is set
     boolean IsOutputStreamSpecified  = false;  // Flag indicating whether the output file is set
     boolean IsTypeSpecified  = false;          // Flag indicating whether the TYPE is set
 
-    private final TYPE[] supportedTypes = {TYPE.BYTE_ARRAY, TYPE.INT_ARRAY, TYPE.CHAR_ARRAY};
+    private final TYPE[] supportedTypes = {TYPE.BYTE_BUFFER, TYPE.BYTE_ARRAY, TYPE.INT_ARRAY, TYPE.CHAR_ARRAY};
     private TYPE currentType;
 
     IProvider Prev;
@@ -29,22 +28,33 @@ public class WriterMy implements IWriter {
 
     private OutputStream outputStream;         // Output stream
     private byte[] buffer;                     // Buffer for accumulating data before output
+    private int bufferSize = 0;                // Used size of the buffer, the leased array may be larger
     private int index = 0;                     // Current buffer position
 
     RC CurrentState = RC_SUCCESS;
-    private final ArrayDeque<Long> availablePackets = new ArrayDeque<>();
+    private final PacketQueue availablePackets = new PacketQueue();
+    private final StageStats stats = new StageStats();
 
     @Override
     public RC getCurrentState() {
         return CurrentState;
     }
 
+    @Override
+    public long getMaxBufferedBytes() {
+        return bufferSize;
+    }
+
+    @Override
+    public StageStats getStats() {
+        return stats;
+    }
+
     @Override
     public RC setConfig(String str) {
         // Perform a syntactic analysis of the configuration file
         MySyntaxAnalyzer config = new MySyntaxAnalyzer(RCWho.WRITER, new WriterGrammarMy());
         RC code = config.process(str);
-        int bufferSize;
 
         // If the syntactic analysis was successful, conduct a semantic analysis
         if (code.isSuccess()) {
@@ -70,7 +80,7 @@ public class WriterMy implements IWriter {
                 return RC_WRITER_CONFIG_SEMANTIC_ERROR;
             }
 
-            buffer = new byte[bufferSize];
+            buffer = BufferPool.SHARED.lease(RCWho.WRITER, bufferSize);
             index = 0;
 
             IsConfigSpecified  = true;
@@ -114,80 +124,104 @@ public class WriterMy implements IWriter {
         if (!IsOutputStreamSpecified )
             return new RC(RCWho.WRITER, RCType.CODE_CUSTOM_ERROR, "Output stream not specified");
 
-        availablePackets.addLast(packet_number);
+        availablePackets.put(packet_number);
         return CurrentState;
     }
 
-    @Override
-    public void run() {
-        while (availablePackets.isEmpty()) {
-            try {
-                Thread.sleep(100);
-            }
-            catch (InterruptedException e) {
+    // Writes the bytes to the stream, the time it takes is the wait of the stage for its output
+    private void write(byte[] array, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        outputStream.write(array, offset, length);
+        stats.addOutputNanos(System.nanoTime() - start);
+        stats.countOut(length);
+    }
+
+    // Puts the packet into the buffer, writing out the filled buffer
+    private RC writePacket(ByteBuffer packet) {
+        try {
+            while (packet.hasRemaining()) {
+                if (index == bufferSize) {
+                    write(buffer, 0, index);
+                    index = 0;
+                }
+                // A packet that would fill the whole buffer is written directly without copying
+                if (index == 0 && packet.hasArray() && packet.remaining() >= bufferSize) {
+                    write(packet.array(), packet.arrayOffset() + packet.position(), packet.remaining());
+                    packet.position(packet.limit());
+                    break;
+                }
+                int length = Math.min(bufferSize - index, packet.remaining());
+                packet.get(buffer, index, length);
+                index += length;
             }
+        } catch (IOException e) {
+            return RC_WRITER_FAILED_TO_WRITE;
         }
+        return RC_SUCCESS;
+    }
 
-        long current_packet = availablePackets.removeFirst();
-        while (current_packet != IConsumer.END_OF_FILE_PACKET_NUMBER && CurrentState.isSuccess()) {
-            byte[] bytes = null;
+    @Override
+    public void run() {
+        stats.started();
+        stats.watch(availablePackets, null);
+        writeAll();
+        BufferPool.SHARED.release(RCWho.WRITER, buffer);
+        buffer = null;
+        stats.ended();
+    }
 
-            if (currentType == TYPE.BYTE_ARRAY)
-                bytes = (byte[]) Mediator.getData(current_packet);
+    private void writeAll() {
+        long current_packet = availablePackets.take();
+        while (current_packet != IConsumer.END_OF_FILE_PACKET_NUMBER && CurrentState.isSuccess()) {
+            Object data = Mediator.getData(current_packet);
+            ByteBuffer packet = null;
+
+            if (data == null)
+                packet = null;
+            else if (currentType == TYPE.BYTE_BUFFER)
+                packet = (ByteBuffer) data;
+            else if (currentType == TYPE.BYTE_ARRAY)
+                packet = ByteBuffer.wrap((byte[]) data);
             else if (currentType == TYPE.CHAR_ARRAY) {
-                char[] chars = (char[]) Mediator.getData(current_packet);
+                char[] chars = (char[]) data;
                 ByteBuffer byteBuffer = ByteBuffer.allocate(chars.length * 2);
                 CharBuffer charBuffer = byteBuffer.asCharBuffer();
                 charBuffer.put(chars);
-                bytes = byteBuffer.array();
+                packet = byteBuffer;
             } else if (currentType == TYPE.INT_ARRAY) {
-                int[] ints = (int[]) Mediator.getData(current_packet);
+                int[] ints = (int[]) data;
                 ByteBuffer byteBuffer = ByteBuffer.allocate(ints.length * 4);
                 IntBuffer intBuffer = byteBuffer.asIntBuffer();
                 intBuffer.put(ints);
-                bytes = byteBuffer.array();
+                packet = byteBuffer;
             }
 
-            if (bytes == null && index != 0) {
+            if (packet == null && index != 0) {
                 try {
-                    outputStream.write(buffer, 0, index);
+                    write(buffer, 0, index);
                 } catch (IOException e) {
                     CurrentState = RC_WRITER_FAILED_TO_WRITE;
                     return;
                 }
                 CurrentState = RC_SUCCESS;
                 return;
-            } else if (bytes == null) {
+            } else if (packet == null) {
                 CurrentState = RC_SUCCESS;
                 return;
             }
-            for (byte aByte : bytes) {
-                if (index == buffer.length) {
-                    try {
-                        outputStream.write(buffer, 0, index);
-                    } catch (IOException e) {
-                        CurrentState = RC_WRITER_FAILED_TO_WRITE;
-                        return;
-                    }
-                    index = 0;
-                }
-
-                buffer[index] = aByte;
-                index++;
-
-            }
-            while (availablePackets.isEmpty()) {
-                try {
-                    Thread.sleep(100);
-                }
-                catch (InterruptedException e) {
-                }
+            stats.countIn(packet.remaining());
+            CurrentState = writePacket(packet);
+            // The packet is written out, so it is given back to the provider
+            Mediator.release(data);
+            if (!CurrentState.isSuccess()) {
+                Mediator.cancel();
+                return;
             }
-            current_packet = availablePackets.removeFirst();
+            current_packet = availablePackets.take();
         }
         if (index != 0 && CurrentState.isSuccess()) {
             try {
-                outputStream.write(buffer, 0, index);
+                write(buffer, 0, index);
             } catch (IOException e) {
                 CurrentState = RC_WRITER_FAILED_TO_WRITE;
             }